@@ -0,0 +1,56 @@
+-- Latency of public event text search: LIKE without indexes, LIKE with trigram indexes
+-- and tsvector relevance ranking, over :rows generated published events.
+-- Runs on the application's own events table: run.sh loads src/main/resources/schema.sql into a scratch
+-- database first, and the search structures below are the ones EventSearchRepository creates.
+-- Usage: psql -d <scratch database> -v rows=100000 -f event-search.sql
+\set ON_ERROR_STOP on
+
+TRUNCATE compilation_events, requests, events, locations, categories, users RESTART IDENTITY;
+
+INSERT INTO users (name, email) VALUES ('bench', 'bench@example.com');
+INSERT INTO categories (name) SELECT 'category' || g FROM generate_series(1, 20) g;
+INSERT INTO locations (lat, lon) VALUES (55.75, 37.62);
+
+-- Words come from a fixed vocabulary, so a query matches about the same share of events at every size.
+INSERT INTO events (title, annotation, category_id, description, event_date, location_id, paid, participant_limit,
+                    request_moderation, initiator_id, state, created_on, published_on)
+SELECT 'event ' || g,
+       (SELECT string_agg('word' || (random() * 20000)::int, ' ') FROM generate_series(1, 20 + g * 0)),
+       1 + g % 20,
+       (SELECT string_agg('word' || (random() * 20000)::int, ' ') FROM generate_series(1, 120 + g * 0)),
+       now() + (random() * 365) * interval '1 day',
+       1, g % 2 = 0, 0, true, 1, 'PUBLISHED', now(), now()
+FROM generate_series(1, :rows) g;
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+ALTER TABLE events ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (to_tsvector('simple', annotation || ' ' || description)) STORED;
+CREATE INDEX IF NOT EXISTS idx_events_search_vector ON events USING gin (search_vector);
+CREATE INDEX IF NOT EXISTS idx_events_annotation_trgm ON events USING gin (lower(annotation) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_events_description_trgm ON events USING gin (lower(description) gin_trgm_ops);
+ANALYZE events;
+
+\echo 'rows:' :rows
+
+\echo '1. LIKE without indexes (the LIKE backend)'
+SET enable_bitmapscan = off;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT e.id FROM events e
+WHERE e.state = 'PUBLISHED' AND e.event_date > now()
+  AND (lower(e.annotation) LIKE '%word1234%' OR lower(e.description) LIKE '%word1234%')
+ORDER BY e.event_date, e.id LIMIT 10;
+RESET enable_bitmapscan;
+
+\echo '2. The same LIKE with trigram indexes (the POSTGRES backend)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT e.id FROM events e
+WHERE e.state = 'PUBLISHED' AND e.event_date > now()
+  AND (lower(e.annotation) LIKE '%word1234%' OR lower(e.description) LIKE '%word1234%')
+ORDER BY e.event_date, e.id LIMIT 10;
+
+\echo '3. Trigram-filtered matches ranked by the tsvector column (sort=RELEVANCE)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT e.id FROM events e
+WHERE e.state = 'PUBLISHED' AND e.event_date > now()
+  AND (lower(e.annotation) LIKE '%word1234%' OR lower(e.description) LIKE '%word1234%')
+ORDER BY ts_rank(e.search_vector, plainto_tsquery('simple', 'word1234')) DESC, e.event_date LIMIT 10;
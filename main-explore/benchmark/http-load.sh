@@ -0,0 +1,32 @@
+#!/bin/sh
+# Compares throughput and p99 latency of main-explore on platform and on virtual threads.
+# Restarts ewm-service and stats-server through docker compose in each mode, then loads every path with wrk
+# at each concurrency. Seed ewm_db first: an empty database measures nothing but request parsing.
+# Usage: PATHS="/events?from=0&size=10 /events/1" CONCURRENCY="50 200 1000 2000" ./http-load.sh
+set -e
+cd "$(dirname "$0")/../.."
+BASE_URL=${BASE_URL:-http://localhost:8080}
+PATHS=${PATHS:-"/events?from=0&size=10 /compilations?pinned=true"}
+CONCURRENCY=${CONCURRENCY:-"50 200 1000 2000"}
+DURATION=${DURATION:-30s}
+THREADS=${THREADS:-8}
+
+printf '%-8s %-32s %8s %12s %10s\n' mode path clients requests/s p99
+for virtual in false true; do
+    VIRTUAL_THREADS=$virtual docker compose up -d --build --force-recreate stats-server ewm-service > /dev/null
+    until curl -sf "$BASE_URL/actuator/health" > /dev/null; do
+        sleep 1
+    done
+    for path in $PATHS; do
+        # Warms up caches and the JIT before the measured runs
+        wrk -t"$THREADS" -c50 -d10s "$BASE_URL$path" > /dev/null
+        for clients in $CONCURRENCY; do
+            wrk -t"$THREADS" -c"$clients" -d"$DURATION" --latency "$BASE_URL$path" \
+                | awk -v mode="$([ "$virtual" = true ] && echo virtual || echo platform)" \
+                      -v path="$path" -v clients="$clients" '
+                    /^Requests\/sec/ { rps = $2 }
+                    $1 == "99%" { p99 = $2 }
+                    END { printf "%-8s %-32s %8s %12s %10s\n", mode, path, clients, rps, p99 }'
+        done
+    done
+done
@@ -0,0 +1,15 @@
+#!/bin/sh
+# Runs event-search.sql for 10k, 100k and 1M events on the application schema and keeps the plans in results/.
+# The events table is refilled on every run, so the scratch database BENCH_DB is recreated from schema.sql
+# on the server given by the usual PG* variables; never point it at a database that holds real data.
+set -e
+cd "$(dirname "$0")"
+BENCH_DB=${BENCH_DB:-ewm_search_bench}
+mkdir -p results
+dropdb --if-exists "$BENCH_DB"
+createdb "$BENCH_DB"
+psql -X -q -d "$BENCH_DB" -v ON_ERROR_STOP=1 -f ../src/main/resources/schema.sql
+for rows in 10000 100000 1000000; do
+    psql -X -q -d "$BENCH_DB" -v rows="$rows" -f event-search.sql | tee "results/event-search-$rows.txt"
+done
+dropdb "$BENCH_DB"
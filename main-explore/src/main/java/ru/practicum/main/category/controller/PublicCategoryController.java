@@ -3,6 +3,7 @@ package ru.practicum.main.category.controller;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.main.category.dto.CategoryDto;
@@ -19,9 +20,10 @@ public class PublicCategoryController {
     private final CategoryService categoryService;
 
     @GetMapping
-    public List<CategoryDto> getCategories(@RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-                                           @RequestParam(defaultValue = "10") @Positive Integer size) {
-        return categoryService.getCategories(from, size);
+    public ResponseEntity<List<CategoryDto>> getCategories(@RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
+                                                           @RequestParam(defaultValue = "10") @Positive Integer size,
+                                                           @RequestParam(required = false) String cursor) {
+        return categoryService.getCategories(from, size, cursor).toResponseEntity();
     }
 
     @GetMapping("/{catId}")
@@ -2,8 +2,7 @@ package ru.practicum.main.category.service;
 
 import ru.practicum.main.category.dto.CategoryDto;
 import ru.practicum.main.category.dto.NewCategoryDto;
-
-import java.util.List;
+import ru.practicum.main.pagination.CursorPage;
 
 public interface CategoryService {
 
@@ -13,7 +12,7 @@ public interface CategoryService {
 
     CategoryDto updateCategory(Long catId, CategoryDto categoryDto);
 
-    List<CategoryDto> getCategories(Integer from, Integer size);
+    CursorPage<CategoryDto> getCategories(Integer from, Integer size, String cursor);
 
     CategoryDto getCategoryById(Long catId);
 }
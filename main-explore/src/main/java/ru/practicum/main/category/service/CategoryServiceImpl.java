@@ -1,8 +1,9 @@
 package ru.practicum.main.category.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.main.category.dto.CategoryDto;
 import ru.practicum.main.category.dto.NewCategoryDto;
@@ -10,8 +11,11 @@ import ru.practicum.main.category.mapper.CategoryMapper;
 import ru.practicum.main.category.model.Category;
 import ru.practicum.main.category.repository.CategoryRepository;
 import ru.practicum.main.event.repository.EventRepository;
+import ru.practicum.main.event.service.EventChangedEvent;
 import ru.practicum.main.exception.DataIntegrityViolationException;
 import ru.practicum.main.exception.NotFoundException;
+import ru.practicum.main.pagination.CursorPage;
+import ru.practicum.main.pagination.PageCursor;
 
 import java.util.List;
 
@@ -20,13 +24,18 @@ import java.util.List;
 @Transactional(readOnly = true)
 public class CategoryServiceImpl implements CategoryService {
 
+    private static final String CURSOR_SORT = "id";
+
     private final CategoryRepository categoryRepository;
     private final EventRepository eventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategorySnapshot categorySnapshot;
 
     @Override
     @Transactional
     public CategoryDto createCategory(NewCategoryDto newCategoryDto) {
         Category category = CategoryMapper.toCategory(newCategoryDto);
+        categorySnapshot.invalidate();
         return CategoryMapper.toCategoryDto(categoryRepository.save(category));
     }
 
@@ -40,6 +49,7 @@ public class CategoryServiceImpl implements CategoryService {
             throw new DataIntegrityViolationException("The category is not empty");
         }
         categoryRepository.deleteById(catId);
+        categorySnapshot.invalidate();
     }
 
     @Override
@@ -48,18 +58,26 @@ public class CategoryServiceImpl implements CategoryService {
         Category category = categoryRepository.findById(catId)
                 .orElseThrow(() -> new NotFoundException("Category with id=" + catId + " was not found"));
         category.setName(categoryDto.getName());
+        categorySnapshot.invalidate();
+        eventPublisher.publishEvent(EventChangedEvent.all());
         return CategoryMapper.toCategoryDto(categoryRepository.save(category));
     }
 
     @Override
-    public List<CategoryDto> getCategories(Integer from, Integer size) {
-        return CategoryMapper.toCategoryDto(categoryRepository.findAll(PageRequest.of(from / size, size)));
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CursorPage<CategoryDto> getCategories(Integer from, Integer size, String cursor) {
+        PageCursor after = PageCursor.decode(cursor, CURSOR_SORT);
+        List<CategoryDto> categories = after == null
+                ? categorySnapshot.page(from, size)
+                : categorySnapshot.pageAfter(after.id(), size);
+        return CursorPage.of(categories, size, category -> PageCursor.of(CURSOR_SORT, null, category.getId()),
+                rows -> rows);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CategoryDto getCategoryById(Long catId) {
-        Category category = categoryRepository.findById(catId)
+        return categorySnapshot.get(catId)
                 .orElseThrow(() -> new NotFoundException("Category with id=" + catId + " was not found"));
-        return CategoryMapper.toCategoryDto(category);
     }
 }
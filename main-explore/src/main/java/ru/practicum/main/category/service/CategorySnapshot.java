@@ -0,0 +1,121 @@
+package ru.practicum.main.category.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.main.category.dto.CategoryDto;
+import ru.practicum.main.category.mapper.CategoryMapper;
+import ru.practicum.main.category.model.Category;
+import ru.practicum.main.category.repository.CategoryRepository;
+import ru.practicum.main.exception.NotFoundException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Immutable copy of the whole categories table ordered by id.
+ * <p>
+ * Every change of the table replaces the snapshot once its transaction commits: the current copy is dropped and
+ * the next reader loads a new one. A copy loaded while another change committed is returned to its reader but not
+ * kept. Readers get fresh DTOs, so the snapshot itself can never be modified.
+ */
+@Component
+public class CategorySnapshot {
+
+    private final CategoryRepository categoryRepository;
+    private final Object lock = new Object();
+    private volatile NavigableMap<Long, String> names;
+    private long version;
+
+    public CategorySnapshot(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    public Optional<CategoryDto> get(Long catId) {
+        String name = names().get(catId);
+        return name == null ? Optional.empty() : Optional.of(new CategoryDto(catId, name));
+    }
+
+    /**
+     * Falls back to the database only while the snapshot has not yet caught up with a category committed just now.
+     */
+    public CategoryDto resolve(Long catId) {
+        return get(catId).orElseGet(() -> CategoryMapper.toCategoryDto(categoryRepository.findById(catId)
+                .orElseThrow(() -> new NotFoundException("Category with id=" + catId + " was not found"))));
+    }
+
+    public boolean contains(Long catId) {
+        return names().containsKey(catId);
+    }
+
+    /**
+     * Returns up to size categories after skipping from of them.
+     */
+    public List<CategoryDto> page(int from, int size) {
+        return toDtos(names().entrySet().stream().skip(from).limit(size).toList());
+    }
+
+    /**
+     * Returns up to size categories whose id is greater than afterId.
+     */
+    public List<CategoryDto> pageAfter(long afterId, int size) {
+        return toDtos(names().tailMap(afterId, false).entrySet().stream().limit(size).toList());
+    }
+
+    public void invalidate() {
+        Runnable invalidation = () -> {
+            synchronized (lock) {
+                version++;
+                names = null;
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        } else {
+            invalidation.run();
+        }
+    }
+
+    private NavigableMap<Long, String> names() {
+        NavigableMap<Long, String> current = names;
+        if (current != null) {
+            return current;
+        }
+        long observed;
+        synchronized (lock) {
+            if (names != null) {
+                return names;
+            }
+            observed = version;
+        }
+        NavigableMap<Long, String> loaded = new TreeMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            loaded.put(category.getId(), category.getName());
+        }
+        loaded = Collections.unmodifiableNavigableMap(loaded);
+        synchronized (lock) {
+            if (version == observed) {
+                names = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    private List<CategoryDto> toDtos(List<Map.Entry<Long, String>> entries) {
+        List<CategoryDto> dtos = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : entries) {
+            dtos.add(new CategoryDto(entry.getKey(), entry.getValue()));
+        }
+        return dtos;
+    }
+}
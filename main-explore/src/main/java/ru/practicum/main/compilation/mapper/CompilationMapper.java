@@ -3,13 +3,10 @@ package ru.practicum.main.compilation.mapper;
 import ru.practicum.main.compilation.dto.CompilationDto;
 import ru.practicum.main.compilation.dto.NewCompilationDto;
 import ru.practicum.main.compilation.model.Compilation;
-import ru.practicum.main.event.mapper.EventMapper;
+import ru.practicum.main.event.dto.EventShortDto;
 import ru.practicum.main.event.model.Event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class CompilationMapper {
 
@@ -22,22 +19,12 @@ public class CompilationMapper {
         );
     }
 
-    public static CompilationDto toCompilationDto(Compilation compilation) {
+    public static CompilationDto toCompilationDto(Compilation compilation, Set<EventShortDto> events) {
         return new CompilationDto(
                 compilation.getId(),
                 compilation.getTitle(),
                 compilation.getPinned(),
-                compilation.getEvents().stream()
-                        .map(EventMapper::toEventShortDto)
-                        .collect(Collectors.toSet())
+                events
         );
     }
-
-    public static List<CompilationDto> toCompilationDto(Iterable<Compilation> compilations) {
-        List<CompilationDto> dtos = new ArrayList<>();
-        for (Compilation compilation : compilations) {
-            dtos.add(toCompilationDto(compilation));
-        }
-        return dtos;
-    }
 }
@@ -2,10 +2,25 @@ package ru.practicum.main.compilation.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.main.compilation.model.Compilation;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface CompilationRepository extends JpaRepository<Compilation, Long> {
+public interface CompilationRepository extends JpaRepository<Compilation, Long>, JpaSpecificationExecutor<Compilation> {
     List<Compilation> findByPinned(Boolean pinned, Pageable pageable);
+
+    List<Compilation> findByPinnedOrderById(Boolean pinned);
+
+    @Query("SELECT c.id AS compilationId, e.id AS eventId FROM Compilation c JOIN c.events e WHERE c.id IN :ids")
+    List<CompilationEvent> findEventIds(@Param("ids") Collection<Long> compilationIds);
+
+    interface CompilationEvent {
+        Long getCompilationId();
+
+        Long getEventId();
+    }
 }
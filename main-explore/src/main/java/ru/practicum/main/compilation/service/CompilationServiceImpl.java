@@ -1,30 +1,54 @@
 package ru.practicum.main.compilation.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.main.category.service.CategorySnapshot;
 import ru.practicum.main.compilation.dto.CompilationDto;
 import ru.practicum.main.compilation.dto.NewCompilationDto;
 import ru.practicum.main.compilation.dto.UpdateCompilationRequest;
 import ru.practicum.main.compilation.mapper.CompilationMapper;
 import ru.practicum.main.compilation.model.Compilation;
 import ru.practicum.main.compilation.repository.CompilationRepository;
+import ru.practicum.main.event.dto.EventShortDto;
+import ru.practicum.main.event.mapper.EventMapper;
 import ru.practicum.main.event.model.Event;
 import ru.practicum.main.event.repository.EventRepository;
+import ru.practicum.main.event.repository.EventSummaryRepository.EventSummary;
+import ru.practicum.main.event.service.ConfirmedRequestsCache;
+import ru.practicum.main.event.service.EventViewsCache;
 import ru.practicum.main.exception.NotFoundException;
+import ru.practicum.main.pagination.CursorPage;
+import ru.practicum.main.pagination.KeysetSpecifications;
+import ru.practicum.main.pagination.OffsetPageRequest;
+import ru.practicum.main.pagination.PageCursor;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class CompilationServiceImpl implements CompilationService {
 
+    private static final String CURSOR_SORT = "id";
+
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
+    private final CategorySnapshot categorySnapshot;
+    private final EventViewsCache eventViewsCache;
+    private final ConfirmedRequestsCache confirmedRequestsCache;
+    private final PinnedCompilationsCache pinnedCompilationsCache;
 
     @Override
     @Transactional
@@ -34,7 +58,8 @@ public class CompilationServiceImpl implements CompilationService {
             events = new HashSet<>(eventRepository.findAllById(newCompilationDto.getEvents()));
         }
         Compilation compilation = CompilationMapper.toCompilation(newCompilationDto, events);
-        return CompilationMapper.toCompilationDto(compilationRepository.save(compilation));
+        pinnedCompilationsCache.invalidate();
+        return render(List.of(compilationRepository.save(compilation))).get(0);
     }
 
     @Override
@@ -44,6 +69,7 @@ public class CompilationServiceImpl implements CompilationService {
             throw new NotFoundException("Compilation with id=" + compId + " was not found");
         }
         compilationRepository.deleteById(compId);
+        pinnedCompilationsCache.invalidate();
     }
 
     @Override
@@ -62,22 +88,114 @@ public class CompilationServiceImpl implements CompilationService {
             compilation.setTitle(updateRequest.getTitle());
         }
 
-        return CompilationMapper.toCompilationDto(compilationRepository.save(compilation));
+        pinnedCompilationsCache.invalidate();
+        return render(List.of(compilationRepository.save(compilation))).get(0);
     }
 
     @Override
-    public List<CompilationDto> getCompilations(Boolean pinned, Integer from, Integer size) {
-        if (pinned != null) {
-            return CompilationMapper.toCompilationDto(compilationRepository.findByPinned(pinned, PageRequest.of(from / size, size)));
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CursorPage<CompilationDto> getCompilations(Boolean pinned, Integer from, Integer size, String cursor) {
+        PageCursor after = PageCursor.decode(cursor, CURSOR_SORT);
+        if (Boolean.TRUE.equals(pinned)) {
+            List<CompilationDto> page = pinnedCompilationsCache
+                    .get(() -> render(compilationRepository.findByPinnedOrderById(true)))
+                    .stream()
+                    .filter(compilation -> after == null || compilation.getId() > after.id())
+                    .skip(after == null ? from : 0)
+                    .limit(size)
+                    .collect(Collectors.toList());
+            return CursorPage.of(page, size, compilation -> PageCursor.of(CURSOR_SORT, null, compilation.getId()),
+                    rows -> withCounters(rows, true));
+        }
+        List<Compilation> compilations;
+        if (after == null) {
+            OffsetPageRequest pageRequest = OffsetPageRequest.of(from, size, Sort.by("id"));
+            if (pinned != null) {
+                compilations = compilationRepository.findByPinned(pinned, pageRequest);
+            } else {
+                compilations = compilationRepository.findAll(pageRequest).getContent();
+            }
         } else {
-            return CompilationMapper.toCompilationDto(compilationRepository.findAll(PageRequest.of(from / size, size)));
+            Specification<Compilation> spec = KeysetSpecifications.afterId(after.id());
+            if (pinned != null) {
+                spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("pinned"), pinned));
+            }
+            compilations = compilationRepository.findBy(spec, query -> query.sortBy(Sort.by("id")).limit(size).all());
         }
+        return CursorPage.of(compilations, size, compilation -> PageCursor.of(CURSOR_SORT, null, compilation.getId()),
+                rows -> withCounters(render(rows), false));
     }
 
     @Override
     public CompilationDto getCompilationById(Long compId) {
         Compilation compilation = compilationRepository.findById(compId)
                 .orElseThrow(() -> new NotFoundException("Compilation with id=" + compId + " was not found"));
-        return CompilationMapper.toCompilationDto(compilation);
+        return withCounters(render(List.of(compilation)), false).get(0);
+    }
+
+    /**
+     * Renders loaded compilations with two more queries whatever their number: the member ids and the summaries of all
+     * members. Categories come from the snapshot; views are left at zero.
+     */
+    private List<CompilationDto> render(List<Compilation> compilations) {
+        if (compilations.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, List<Long>> members = new HashMap<>();
+        List<Long> compilationIds = compilations.stream().map(Compilation::getId).collect(Collectors.toList());
+        for (CompilationRepository.CompilationEvent member : compilationRepository.findEventIds(compilationIds)) {
+            members.computeIfAbsent(member.getCompilationId(), id -> new ArrayList<>()).add(member.getEventId());
+        }
+        Set<Long> eventIds = members.values().stream().flatMap(List::stream).collect(Collectors.toSet());
+        Map<Long, EventShortDto> events = new HashMap<>();
+        if (!eventIds.isEmpty()) {
+            Specification<Event> spec = (root, query, criteriaBuilder) -> root.get("id").in(eventIds);
+            for (EventSummary summary : eventRepository.findSummaries(spec, Pageable.unpaged())) {
+                events.put(summary.id(), EventMapper.toEventShortDto(summary, categorySnapshot.resolve(summary.categoryId())));
+            }
+        }
+        return compilations.stream()
+                .map(compilation -> CompilationMapper.toCompilationDto(compilation,
+                        members.getOrDefault(compilation.getId(), List.of()).stream()
+                                .map(events::get)
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toSet())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns copies of the compilations with the views of all their events, fetched in one call. Events the stats
+     * server did not answer for keep their last known views and are flagged. Cached compilations also overlay the
+     * confirmed request counters, which change without evicting them; fresh renders already carry current ones.
+     */
+    private List<CompilationDto> withCounters(List<CompilationDto> compilations, boolean readConfirmedRequests) {
+        List<Long> eventIds = compilations.stream()
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .map(EventShortDto::getId)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, Long> views = eventIds.isEmpty() ? Map.of() : eventViewsCache.getViews(eventIds);
+        Map<Long, Long> confirmedRequests = !readConfirmedRequests || eventIds.isEmpty()
+                ? Map.of()
+                : confirmedRequestsCache.get(eventIds);
+        return compilations.stream()
+                .map(compilation -> new CompilationDto(
+                        compilation.getId(),
+                        compilation.getTitle(),
+                        compilation.getPinned(),
+                        compilation.getEvents().stream()
+                                .map(event -> new EventShortDto(
+                                        event.getId(),
+                                        event.getTitle(),
+                                        event.getAnnotation(),
+                                        event.getCategory(),
+                                        event.getEventDate(),
+                                        event.getInitiator(),
+                                        event.getPaid(),
+                                        confirmedRequests.getOrDefault(event.getId(), event.getConfirmedRequests()),
+                                        views.getOrDefault(event.getId(), event.getViews()),
+                                        views.containsKey(event.getId()) ? null : true))
+                                .collect(Collectors.toSet())))
+                .collect(Collectors.toList());
     }
 }
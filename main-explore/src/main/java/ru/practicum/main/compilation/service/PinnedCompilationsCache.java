@@ -0,0 +1,82 @@
+package ru.practicum.main.compilation.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.main.compilation.dto.CompilationDto;
+import ru.practicum.main.event.service.EventChangedEvent;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Rendered pinned compilations, ordered by id, for the homepage listing. Views and confirmed requests of the events
+ * may be stale in the entry and are overlaid by the caller on every read.
+ * <p>
+ * A compilation change, or a change of an event shown in a pinned compilation, drops the entry once its
+ * transaction commits and the next reader renders it again. An entry rendered while such a change committed is
+ * returned to its reader but not kept.
+ */
+@Component
+public class PinnedCompilationsCache {
+
+    private final Object lock = new Object();
+    private volatile List<CompilationDto> compilations;
+    private long version;
+
+    public List<CompilationDto> get(Supplier<List<CompilationDto>> loader) {
+        List<CompilationDto> current = compilations;
+        if (current != null) {
+            return current;
+        }
+        long observed;
+        synchronized (lock) {
+            if (compilations != null) {
+                return compilations;
+            }
+            observed = version;
+        }
+        List<CompilationDto> loaded = List.copyOf(loader.get());
+        synchronized (lock) {
+            if (version == observed) {
+                compilations = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow();
+                }
+            });
+        } else {
+            invalidateNow();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChanged(EventChangedEvent event) {
+        List<CompilationDto> current = compilations;
+        if (event.eventId() == null || current == null || contains(current, event.eventId())) {
+            invalidateNow();
+        }
+    }
+
+    private boolean contains(List<CompilationDto> current, Long eventId) {
+        return current.stream()
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .anyMatch(eventDto -> eventDto.getId().equals(eventId));
+    }
+
+    private void invalidateNow() {
+        synchronized (lock) {
+            version++;
+            compilations = null;
+        }
+    }
+}
@@ -3,7 +3,14 @@ package ru.practicum.main.event.dto;
 public interface EnrichableEventDto {
     Long getId();
 
+    Long getViews();
+
     void setViews(Long views);
 
+    /**
+     * Set to true when views hold the last known value because the stats server did not answer in time.
+     */
+    void setViewsPartial(Boolean viewsPartial);
+
     void setConfirmedRequests(Long confirmedRequests);
 }
@@ -1,6 +1,7 @@
 package ru.practicum.main.event.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -25,4 +26,6 @@ public class EventShortDto implements EnrichableEventDto {
     private Boolean paid;
     private Long confirmedRequests;
     private Long views;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean viewsPartial;
 }
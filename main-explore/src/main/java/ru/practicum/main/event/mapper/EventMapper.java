@@ -1,18 +1,21 @@
 package ru.practicum.main.event.mapper;
 
-import ru.practicum.main.category.mapper.CategoryMapper;
+import ru.practicum.main.category.dto.CategoryDto;
 import ru.practicum.main.category.model.Category;
 import ru.practicum.main.event.dto.EventFullDto;
 import ru.practicum.main.event.dto.EventShortDto;
 import ru.practicum.main.event.dto.NewEventDto;
 import ru.practicum.main.event.model.Event;
+import ru.practicum.main.event.repository.EventSummaryRepository.EventSummary;
 import ru.practicum.main.location.mapper.LocationMapper;
+import ru.practicum.main.user.dto.UserShortDto;
 import ru.practicum.main.user.mapper.UserMapper;
 import ru.practicum.main.user.model.User;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 import static ru.practicum.main.event.dto.EventState.PENDING;
 
@@ -33,16 +36,18 @@ public class EventMapper {
                 initiator,
                 PENDING,
                 createdOn,
-                null
+                null,
+                0L,
+                0L
         );
     }
 
-    public static EventFullDto toEventFullDto(Event event) {
+    public static EventFullDto toEventFullDto(Event event, CategoryDto category) {
         return new EventFullDto(
                 event.getId(),
                 event.getTitle(),
                 event.getAnnotation(),
-                CategoryMapper.toCategoryDto(event.getCategory()),
+                category,
                 event.getDescription(),
                 event.getEventDate(),
                 LocationMapper.toLocationDto(event.getLocation()),
@@ -53,38 +58,41 @@ public class EventMapper {
                 event.getState(),
                 event.getCreatedOn(),
                 event.getPublishedOn(),
-                0L,
-                0L
+                confirmedRequests(event),
+                views(event),
+                null
         );
     }
 
-    public static EventShortDto toEventShortDto(Event event) {
+    public static EventShortDto toEventShortDto(EventSummary summary, CategoryDto category) {
         return new EventShortDto(
-                event.getId(),
-                event.getTitle(),
-                event.getAnnotation(),
-                CategoryMapper.toCategoryDto(event.getCategory()),
-                event.getEventDate(),
-                UserMapper.toUserShortDto(event.getInitiator()),
-                event.getPaid(),
-                0L,
-                0L
+                summary.id(),
+                summary.title(),
+                summary.annotation(),
+                category,
+                summary.eventDate(),
+                new UserShortDto(summary.initiatorId(), summary.initiatorName()),
+                summary.paid(),
+                summary.confirmedRequests() == null ? 0L : summary.confirmedRequests(),
+                summary.views() == null ? 0L : summary.views(),
+                null
         );
     }
 
-    public static List<EventShortDto> toEventShortDto(Iterable<Event> events) {
+    public static List<EventShortDto> summariesToEventShortDto(Iterable<EventSummary> summaries,
+                                                               Function<Long, CategoryDto> categories) {
         List<EventShortDto> dtos = new ArrayList<>();
-        for (Event event : events) {
-            dtos.add(toEventShortDto(event));
+        for (EventSummary summary : summaries) {
+            dtos.add(toEventShortDto(summary, categories.apply(summary.categoryId())));
         }
         return dtos;
     }
 
-    public static List<EventFullDto> toEventFullDto(Iterable<Event> events) {
-        List<EventFullDto> dtos = new ArrayList<>();
-        for (Event event : events) {
-            dtos.add(toEventFullDto(event));
-        }
-        return dtos;
+    private static Long confirmedRequests(Event event) {
+        return event.getConfirmedRequests() == null ? 0L : event.getConfirmedRequests();
+    }
+
+    private static Long views(Event event) {
+        return event.getViews() == null ? 0L : event.getViews();
     }
 }
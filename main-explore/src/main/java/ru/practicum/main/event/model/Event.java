@@ -65,4 +65,19 @@ public class Event {
 
     @Column(name = "published_on")
     private LocalDateTime publishedOn;
+
+    /**
+     * Maintained only by atomic increments in {@link ru.practicum.main.event.repository.EventRepository},
+     * so Hibernate never writes it back from a possibly stale entity.
+     */
+    @Column(name = "confirmed_requests", insertable = false, updatable = false)
+    private Long confirmedRequests;
+
+    /**
+     * Unique views copied from the stats server by {@link ru.practicum.main.event.service.EventViewsSynchronizer};
+     * used to order listings and as the last known value when the stats server does not answer in time, responses
+     * otherwise take views from the stats server.
+     */
+    @Column(insertable = false, updatable = false)
+    private Long views;
 }
@@ -0,0 +1,37 @@
+package ru.practicum.main.event.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * Registers the criteria functions of event queries with Hibernate.
+ * <p>
+ * {@value #ID_IN_LIST}(id, ids) takes the ids as one comma-separated string and compares with
+ * {@code = ANY(array)}, so thousands of candidate ids from the search index are bound as a single parameter
+ * instead of one parameter each.
+ */
+public class EventFunctionContributor implements FunctionContributor {
+
+    public static final String ID_IN_LIST = "event_id_in_list";
+
+    public static String toList(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry()
+                .register(EventSearchRankFunction.NAME,
+                        new EventSearchRankFunction(functionContributions.getTypeConfiguration()));
+        functionContributions.getFunctionRegistry()
+                .patternDescriptorBuilder(ID_IN_LIST, "(?1 = any(cast(string_to_array(?2, ',') as bigint[])))")
+                .setExactArgumentCount(2)
+                .setInvariantType(functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                        .resolve(StandardBasicTypes.BOOLEAN))
+                .register();
+    }
+}
@@ -1,17 +1,115 @@
 package ru.practicum.main.event.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.main.event.dto.EventState;
 import ru.practicum.main.event.model.Event;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event> {
-    List<Event> findAllByInitiatorId(Long initiatorId, Pageable pageable);
-
+/**
+ * Methods that return events for DTO mapping fetch initiator and location in the same select, since the mappers
+ * read both; categories come from the category snapshot. Fluent queries do the same with
+ * {@code project("initiator", "location")}.
+ */
+public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event>, EventSummaryRepository {
+    @EntityGraph(attributePaths = {"initiator", "location"})
     Optional<Event> findByIdAndInitiatorId(Long eventId, Long initiatorId);
 
+    @EntityGraph(attributePaths = {"initiator", "location"})
+    Optional<Event> findWithDetailsById(Long eventId);
+
+    @Override
+    @EntityGraph(attributePaths = {"initiator", "location"})
+    List<Event> findAll(Specification<Event> spec);
+
     Boolean existsByCategoryId(Long categoryId);
+
+    @Query("SELECT e.id AS id, e.annotation AS annotation, e.description AS description " +
+            "FROM Event e " +
+            "WHERE e.state = :state AND e.id > :afterId " +
+            "ORDER BY e.id")
+    List<EventText> findTextsAfter(@Param("state") EventState state, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT e.id FROM Event e WHERE e.state = :state AND e.id > :afterId ORDER BY e.id")
+    List<Long> findIdsAfter(@Param("state") EventState state, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = e.confirmedRequests + :delta WHERE e.id = :eventId")
+    void addConfirmedRequests(@Param("eventId") Long eventId, @Param("delta") long delta);
+
+    /**
+     * Adds count confirmed requests unless that would exceed the participant limit and returns the number of updated
+     * rows, 0 when the event is full. PostgreSQL re-checks the condition on the latest row version after waiting for
+     * a concurrent update, so concurrent admissions never oversell and only queue on this row for the rest of their
+     * transaction.
+     */
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = e.confirmedRequests + :count " +
+            "WHERE e.id = :eventId AND (e.participantLimit = 0 OR e.confirmedRequests + :count <= e.participantLimit)")
+    int reserveParticipants(@Param("eventId") Long eventId, @Param("count") long count);
+
+    /**
+     * Same guarded update as {@link #reserveParticipants}, returning the counter and the limit the update left on the
+     * row, or nothing when the event is full. The row stays locked until the transaction ends, so the returned values
+     * are current for the rest of it.
+     * <p>
+     * Not {@code @Modifying}: UPDATE ... RETURNING produces a result set and has to be run as a query. Hibernate
+     * flushes the session before a native query and does not touch loaded entities, so a loaded Event keeps its old
+     * counter.
+     */
+    @Query(value = "UPDATE events SET confirmed_requests = confirmed_requests + :count " +
+            "WHERE id = :eventId AND (participant_limit = 0 OR confirmed_requests + :count <= participant_limit) " +
+            "RETURNING confirmed_requests AS confirmedRequests, participant_limit AS participantLimit",
+            nativeQuery = true)
+    Optional<Occupancy> reserveParticipantsReturning(@Param("eventId") Long eventId, @Param("count") long count);
+
+    @Query(value = "SELECT e.id FROM events e " +
+            "WHERE e.confirmed_requests <> (SELECT COUNT(*) FROM requests r WHERE r.event_id = e.id AND r.status = 'CONFIRMED')",
+            nativeQuery = true)
+    List<Long> findIdsWithConfirmedRequestsDrift();
+
+    @Query(value = "SELECT id FROM events WHERE id = :eventId FOR UPDATE", nativeQuery = true)
+    Long lockById(@Param("eventId") Long eventId);
+
+    @Modifying
+    @Query(value = "UPDATE events SET confirmed_requests = " +
+            "(SELECT COUNT(*) FROM requests r WHERE r.event_id = :eventId AND r.status = 'CONFIRMED') " +
+            "WHERE id = :eventId",
+            nativeQuery = true)
+    void recountConfirmedRequests(@Param("eventId") Long eventId);
+
+    /**
+     * Reads only the counters, for responses whose other fields come from a cache.
+     */
+    @Query("SELECT e.id AS id, e.confirmedRequests AS confirmedRequests FROM Event e WHERE e.id IN :ids")
+    List<ConfirmedRequests> findConfirmedRequests(@Param("ids") Collection<Long> eventIds);
+
+    interface EventText {
+        Long getId();
+
+        String getAnnotation();
+
+        String getDescription();
+    }
+
+    interface Occupancy {
+        Long getConfirmedRequests();
+
+        Integer getParticipantLimit();
+    }
+
+    interface ConfirmedRequests {
+        Long getId();
+
+        Long getConfirmedRequests();
+    }
 }
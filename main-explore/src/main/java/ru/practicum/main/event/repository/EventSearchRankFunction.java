@@ -0,0 +1,47 @@
+package ru.practicum.main.event.repository;
+
+import org.hibernate.metamodel.model.domain.ReturnableType;
+import org.hibernate.query.sqm.function.AbstractSqmSelfRenderingFunctionDescriptor;
+import org.hibernate.query.sqm.produce.function.StandardArgumentsValidators;
+import org.hibernate.query.sqm.produce.function.StandardFunctionReturnTypeResolvers;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.spi.SqlAppender;
+import org.hibernate.sql.ast.tree.SqlAstNode;
+import org.hibernate.sql.ast.tree.expression.ColumnReference;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.spi.TypeConfiguration;
+
+import java.util.List;
+
+/**
+ * Criteria function {@value #NAME}(event id, text) for sort=RELEVANCE of the PostgreSQL search backend.
+ * <p>
+ * search_vector is created at runtime by {@link EventSearchRepository} and is not mapped on Event, so the function
+ * takes the id path only to find the table alias of the row and renders
+ * {@code ts_rank(<alias>.search_vector, plainto_tsquery('simple', text))} against the row being sorted.
+ */
+public class EventSearchRankFunction extends AbstractSqmSelfRenderingFunctionDescriptor {
+
+    public static final String NAME = "event_search_rank";
+
+    public EventSearchRankFunction(TypeConfiguration typeConfiguration) {
+        super(NAME,
+                StandardArgumentsValidators.exactly(2),
+                StandardFunctionReturnTypeResolvers.invariant(
+                        typeConfiguration.getBasicTypeRegistry().resolve(StandardBasicTypes.FLOAT)),
+                null);
+    }
+
+    @Override
+    public void render(SqlAppender sqlAppender, List<? extends SqlAstNode> sqlAstArguments,
+                       ReturnableType<?> returnType, SqlAstTranslator<?> walker) {
+        if (!(sqlAstArguments.get(0) instanceof ColumnReference id)) {
+            throw new IllegalArgumentException(NAME + " expects the id path of an event as its first argument");
+        }
+        sqlAppender.appendSql("ts_rank(");
+        sqlAppender.appendSql(id.getQualifier());
+        sqlAppender.appendSql(".search_vector, plainto_tsquery('simple', ");
+        sqlAstArguments.get(1).accept(walker);
+        sqlAppender.appendSql("))");
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.main.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Database structures of the PostgreSQL search backend. They need the pg_trgm extension,
+ * so they are created only when that backend is selected instead of in schema.sql.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EventSearchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void createSearchStructures() {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        jdbcTemplate.execute("ALTER TABLE events ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+                "GENERATED ALWAYS AS (to_tsvector('simple', annotation || ' ' || description)) STORED");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_events_search_vector ON events USING gin (search_vector)");
+        // The LIKE predicates compare lower(column), so the trigram indexes are built on the same expressions.
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_events_annotation_trgm ON events USING gin (lower(annotation) gin_trgm_ops)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_events_description_trgm ON events USING gin (lower(description) gin_trgm_ops)");
+    }
+}
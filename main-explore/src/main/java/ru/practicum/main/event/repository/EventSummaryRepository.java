@@ -0,0 +1,44 @@
+package ru.practicum.main.event.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.main.event.model.Event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EventSummaryRepository {
+
+    /**
+     * Selects only the columns of EventShortDto, joined with the initiator name, into unmanaged records; category
+     * names are left to the category snapshot. An ordering set by the specification is kept when the pageable is
+     * unsorted.
+     */
+    List<EventSummary> findSummaries(Specification<Event> spec, Pageable pageable);
+
+    /**
+     * Loads one page of events with initiator and location fetched in the same select. Unlike
+     * {@code findAll(spec, pageable)} it returns a plain list and so never issues a count query.
+     */
+    List<Event> findPage(Specification<Event> spec, Pageable pageable);
+
+    /**
+     * Selects only the id and date of every matching event, for orderings computed outside the database.
+     */
+    List<EventKey> findKeys(Specification<Event> spec);
+
+    record EventSummary(Long id,
+                        String title,
+                        String annotation,
+                        Long categoryId,
+                        LocalDateTime eventDate,
+                        Long initiatorId,
+                        String initiatorName,
+                        Boolean paid,
+                        Long confirmedRequests,
+                        Long views) {
+    }
+
+    record EventKey(Long id, LocalDateTime eventDate) {
+    }
+}
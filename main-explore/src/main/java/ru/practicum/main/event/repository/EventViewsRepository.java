@@ -0,0 +1,43 @@
+package ru.practicum.main.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class EventViewsRepository {
+
+    private static final String UPDATE_VIEWS = "UPDATE events SET views = ? WHERE id = ? AND views <> ?";
+
+    private static final String SAVE_SYNCED_UNTIL = "INSERT INTO event_views_sync (id, synced_until) VALUES (1, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET synced_until = GREATEST(event_views_sync.synced_until, EXCLUDED.synced_until)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void updateViews(Map<Long, Long> views) {
+        jdbcTemplate.batchUpdate(UPDATE_VIEWS, new ArrayList<>(views.entrySet()), views.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+            ps.setLong(3, entry.getValue());
+        });
+    }
+
+    public Optional<LocalDateTime> findSyncedUntil() {
+        return jdbcTemplate.query("SELECT synced_until FROM event_views_sync WHERE id = 1",
+                (rs, rowNum) -> rs.getTimestamp("synced_until").toLocalDateTime()).stream().findFirst();
+    }
+
+    /**
+     * Never moves the watermark back, so an instance with an older run cannot undo the progress of another one.
+     */
+    public void saveSyncedUntil(LocalDateTime syncedUntil) {
+        jdbcTemplate.update(SAVE_SYNCED_UNTIL, Timestamp.valueOf(syncedUntil));
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.main.event.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.main.event.repository.EventRepository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the confirmed_requests counters overlaid on cached event bodies, so a hot event page is served without a
+ * database read.
+ * <p>
+ * Misses are read in one query. Each {@link ConfirmedRequestsChangedEvent} drops the counter once its transaction
+ * commits; a counter read while such a change committed is returned to its reader but not kept. The ttl only
+ * bounds the damage of a change made by another instance or outside this service.
+ */
+@Component
+public class ConfirmedRequestsCache {
+
+    private final EventRepository eventRepository;
+    private final Cache<Long, Long> cache;
+    private final Object lock = new Object();
+    private long version;
+
+    public ConfirmedRequestsCache(EventRepository eventRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${events.confirmed-requests-cache.max-size:100000}") long maxSize,
+                                  @Value("${events.confirmed-requests-cache.ttl:PT1M}") Duration ttl) {
+        this.eventRepository = eventRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "event-confirmed-requests");
+    }
+
+    /**
+     * Returns the counters of the given events; events that do not exist are left out.
+     */
+    public Map<Long, Long> get(Collection<Long> eventIds) {
+        Map<Long, Long> counters = new HashMap<>(cache.getAllPresent(eventIds));
+        List<Long> missing = new ArrayList<>();
+        for (Long eventId : eventIds) {
+            if (!counters.containsKey(eventId)) {
+                missing.add(eventId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return counters;
+        }
+        long observed;
+        synchronized (lock) {
+            observed = version;
+        }
+        Map<Long, Long> loaded = new HashMap<>();
+        for (EventRepository.ConfirmedRequests row : eventRepository.findConfirmedRequests(missing)) {
+            loaded.put(row.getId(), row.getConfirmedRequests());
+        }
+        synchronized (lock) {
+            if (version == observed) {
+                cache.putAll(loaded);
+            }
+        }
+        counters.putAll(loaded);
+        return counters;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onConfirmedRequestsChanged(ConfirmedRequestsChangedEvent event) {
+        synchronized (lock) {
+            version++;
+            cache.invalidate(event.eventId());
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.main.event.service;
+
+/**
+ * Published whenever the confirmed_requests counter of an event changes. Unlike {@link EventChangedEvent} it leaves
+ * cached event bodies alone and only drops the cached counter once the change commits.
+ */
+public record ConfirmedRequestsChangedEvent(Long eventId) {
+}
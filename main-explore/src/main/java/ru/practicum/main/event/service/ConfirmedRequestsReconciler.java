@@ -0,0 +1,43 @@
+package ru.practicum.main.event.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.main.event.repository.EventRepository;
+
+import java.util.List;
+
+/**
+ * Repairs events whose confirmed_requests counter differs from the confirmed requests actually stored.
+ * Every counter change also updates the event row, so recounting under that row's lock sees a settled value.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConfirmedRequestsReconciler {
+
+    private final EventRepository eventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${events.confirmed-requests.reconcile-cron:0 */15 * * * *}")
+    public void reconcile() {
+        List<Long> eventIds = eventRepository.findIdsWithConfirmedRequestsDrift();
+        for (Long eventId : eventIds) {
+            transactionTemplate.executeWithoutResult(status -> {
+                eventRepository.lockById(eventId);
+                eventRepository.recountConfirmedRequests(eventId);
+                eventPublisher.publishEvent(new ConfirmedRequestsChangedEvent(eventId));
+            });
+        }
+        if (!eventIds.isEmpty()) {
+            log.warn("Пересчитано число подтверждённых заявок у {} событий", eventIds.size());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.main.event.service;
+
+/**
+ * Published whenever data rendered into cached event DTOs changes: the events row or a category name. Listeners use
+ * {@code @TransactionalEventListener} to act once the change commits. A null eventId stands for every event.
+ * <p>
+ * Confirmed request counters change with every admission and are announced by
+ * {@link ConfirmedRequestsChangedEvent} instead, so they never evict a body.
+ */
+public record EventChangedEvent(Long eventId) {
+
+    public static EventChangedEvent all() {
+        return new EventChangedEvent(null);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.main.event.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.main.event.dto.EventFullDto;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Keeps rendered EventFullDto bodies of published events for GET /events/{id}.
+ * <p>
+ * Views and confirmed requests are not part of an entry: callers overlay views from {@link EventViewsCache} and
+ * confirmed requests from {@link ConfirmedRequestsCache}, so admissions never evict a body. Each {@link EventChangedEvent}
+ * evicts the affected entries once its transaction commits. Bodies are loaded outside the cache, so a miss never
+ * holds a cache lock during its query; a body loaded while an eviction committed is returned to its reader but not
+ * kept. The ttl only bounds the damage of a change made outside this service.
+ */
+@Component
+public class EventDetailsCache {
+
+    private final Cache<Long, EventFullDto> cache;
+    private final Object lock = new Object();
+    private long version;
+
+    public EventDetailsCache(MeterRegistry meterRegistry,
+                             @Value("${events.details-cache.max-size:10000}") long maxSize,
+                             @Value("${events.details-cache.ttl:PT10M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "event-details");
+    }
+
+    /**
+     * Returns a copy of the cached body, loading it on a miss. An exception of the loader is rethrown and nothing
+     * is cached, so events that are not published are never stored.
+     */
+    public EventFullDto get(Long eventId, Function<Long, EventFullDto> loader) {
+        EventFullDto cached = cache.getIfPresent(eventId);
+        if (cached != null) {
+            return copy(cached);
+        }
+        long observed;
+        synchronized (lock) {
+            observed = version;
+        }
+        EventFullDto loaded = copy(loader.apply(eventId));
+        loaded.setConfirmedRequests(null);
+        synchronized (lock) {
+            if (version == observed) {
+                cache.put(eventId, loaded);
+            }
+        }
+        return copy(loaded);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChanged(EventChangedEvent event) {
+        synchronized (lock) {
+            version++;
+            if (event.eventId() == null) {
+                cache.invalidateAll();
+            } else {
+                cache.invalidate(event.eventId());
+            }
+        }
+    }
+
+    private EventFullDto copy(EventFullDto dto) {
+        return new EventFullDto(
+                dto.getId(),
+                dto.getTitle(),
+                dto.getAnnotation(),
+                dto.getCategory(),
+                dto.getDescription(),
+                dto.getEventDate(),
+                dto.getLocation(),
+                dto.getPaid(),
+                dto.getParticipantLimit(),
+                dto.getRequestModeration(),
+                dto.getInitiator(),
+                dto.getState(),
+                dto.getCreatedOn(),
+                dto.getPublishedOn(),
+                dto.getConfirmedRequests(),
+                dto.getViews(),
+                null
+        );
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.main.event.service;
+
+/**
+ * How public event search narrows the annotation and description substring match.
+ */
+public enum EventSearchBackend {
+    /**
+     * Plain LIKE predicates only.
+     */
+    LIKE,
+    /**
+     * Candidate ids from the in-memory inverted index, see {@link EventSearchIndex}.
+     */
+    MEMORY,
+    /**
+     * Trigram indexes for the LIKE predicates and a tsvector column for relevance.
+     */
+    POSTGRES
+}
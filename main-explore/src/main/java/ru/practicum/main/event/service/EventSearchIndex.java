@@ -0,0 +1,271 @@
+package ru.practicum.main.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.main.event.dto.EventState;
+import ru.practicum.main.event.model.Event;
+import ru.practicum.main.event.repository.EventRepository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index of the words in the annotation and description of published events.
+ * <p>
+ * A search returns every event in which each word of the text occurs inside some indexed word, which is a superset
+ * of the events whose annotation or description contains the text, so callers still apply the substring predicate
+ * to the candidates. Each candidate carries a relevance weight: word occurrences, counting annotation twice.
+ * <p>
+ * Indexed words are looked up by their trigrams, so a search only compares the words sharing every trigram of a
+ * query word. Query words shorter than a trigram scan the trigram keys, which are far fewer than the words.
+ */
+@Slf4j
+@Component
+public class EventSearchIndex {
+
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int ANNOTATION_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int GRAM_LENGTH = 3;
+
+    private final EventRepository eventRepository;
+    private final boolean enabled;
+    private final int maxCandidates;
+    private final int loadBatchSize;
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, Set<String>> wordsByEvent = new HashMap<>();
+    private final Map<String, Set<String>> wordsByGram = new HashMap<>();
+    private final Set<String> shortWords = new HashSet<>();
+    private final Set<Long> changedWhileLoading = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    public EventSearchIndex(EventRepository eventRepository,
+                            @Value("${events.search.backend:MEMORY}") EventSearchBackend backend,
+                            @Value("${events.search.index.max-candidates:10000}") int maxCandidates,
+                            @Value("${events.search.index.load-batch-size:1000}") int loadBatchSize) {
+        this.eventRepository = eventRepository;
+        this.enabled = backend == EventSearchBackend.MEMORY;
+        this.maxCandidates = maxCandidates;
+        this.loadBatchSize = loadBatchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long afterId = 0;
+        int loaded = 0;
+        List<EventRepository.EventText> batch;
+        do {
+            batch = eventRepository.findTextsAfter(EventState.PUBLISHED, afterId, PageRequest.of(0, loadBatchSize));
+            lock.writeLock().lock();
+            try {
+                for (EventRepository.EventText text : batch) {
+                    if (!changedWhileLoading.contains(text.getId())) {
+                        put(text.getId(), text.getAnnotation(), text.getDescription());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+                loaded += batch.size();
+            }
+        } while (batch.size() == loadBatchSize);
+
+        int vocabulary;
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading.clear();
+            ready = true;
+            vocabulary = postings.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен по {} опубликованным событиям, слов в словаре: {}", loaded, vocabulary);
+    }
+
+    /**
+     * Returns candidate event ids with their relevance, or nothing when the index cannot narrow the search:
+     * it is disabled or still loading, the text has no words, or too many events match.
+     */
+    public Optional<Map<Long, Integer>> search(String text) {
+        List<String> words = words(text).stream().distinct().collect(Collectors.toList());
+        if (!ready || words.isEmpty()) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> candidates = null;
+            for (String word : words) {
+                Map<Long, Integer> matches = new HashMap<>();
+                for (String indexed : indexedWordsContaining(word)) {
+                    postings.get(indexed).forEach((eventId, weight) -> matches.merge(eventId, weight, Integer::sum));
+                }
+                if (candidates != null) {
+                    matches.keySet().retainAll(candidates.keySet());
+                    candidates.forEach((eventId, weight) -> matches.computeIfPresent(eventId, (id, sum) -> sum + weight));
+                }
+                candidates = matches;
+                if (candidates.isEmpty()) {
+                    break;
+                }
+            }
+            return candidates.size() > maxCandidates ? Optional.empty() : Optional.of(candidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the candidates of the text are exactly the events whose annotation or description contains it, so
+     * callers can skip the substring predicate: true for a single word, since a substring without separators always
+     * lies within one indexed word.
+     */
+    public boolean matchesExactly(String text) {
+        List<String> words = words(text);
+        return words.size() == 1 && words.get(0).equals(text.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Indexes a published event, or removes any other event, once the current transaction commits.
+     */
+    public void update(Event event) {
+        if (!enabled) {
+            return;
+        }
+        Long eventId = event.getId();
+        boolean published = event.getState() == EventState.PUBLISHED;
+        String annotation = event.getAnnotation();
+        String description = event.getDescription();
+        Runnable update = () -> {
+            lock.writeLock().lock();
+            try {
+                if (!ready) {
+                    changedWhileLoading.add(eventId);
+                }
+                remove(eventId);
+                if (published) {
+                    put(eventId, annotation, description);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    private void put(Long eventId, String annotation, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        words(annotation).forEach(word -> weights.merge(word, ANNOTATION_WEIGHT, Integer::sum));
+        words(description).forEach(word -> weights.merge(word, DESCRIPTION_WEIGHT, Integer::sum));
+        weights.forEach((word, weight) -> postings.computeIfAbsent(word, this::addWord).put(eventId, weight));
+        wordsByEvent.put(eventId, weights.keySet());
+    }
+
+    private void remove(Long eventId) {
+        Set<String> words = wordsByEvent.remove(eventId);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            Map<Long, Integer> weights = postings.get(word);
+            weights.remove(eventId);
+            if (weights.isEmpty()) {
+                postings.remove(word);
+                removeWord(word);
+            }
+        }
+    }
+
+    private Set<String> indexedWordsContaining(String word) {
+        Set<String> result = new HashSet<>();
+        if (word.length() < GRAM_LENGTH) {
+            shortWords.stream().filter(indexed -> indexed.contains(word)).forEach(result::add);
+            wordsByGram.forEach((gram, words) -> {
+                if (gram.contains(word)) {
+                    result.addAll(words);
+                }
+            });
+            return result;
+        }
+        Set<String> smallest = null;
+        for (String gram : grams(word)) {
+            Set<String> words = wordsByGram.get(gram);
+            if (words == null) {
+                return result;
+            }
+            if (smallest == null || words.size() < smallest.size()) {
+                smallest = words;
+            }
+        }
+        smallest.stream().filter(indexed -> indexed.contains(word)).forEach(result::add);
+        return result;
+    }
+
+    private Map<Long, Integer> addWord(String word) {
+        if (word.length() < GRAM_LENGTH) {
+            shortWords.add(word);
+        }
+        for (String gram : grams(word)) {
+            wordsByGram.computeIfAbsent(gram, key -> new HashSet<>()).add(word);
+        }
+        return new HashMap<>();
+    }
+
+    private void removeWord(String word) {
+        shortWords.remove(word);
+        for (String gram : grams(word)) {
+            Set<String> words = wordsByGram.get(gram);
+            words.remove(word);
+            if (words.isEmpty()) {
+                wordsByGram.remove(gram);
+            }
+        }
+    }
+
+    private Set<String> grams(String word) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= word.length(); i++) {
+            grams.add(word.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private List<String> words(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.main.event.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.main.event.repository.EventSearchRepository;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventSearchSchemaInitializer implements InitializingBean {
+
+    private final EventSearchRepository eventSearchRepository;
+
+    @Value("${events.search.backend:MEMORY}")
+    private EventSearchBackend backend;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (backend == EventSearchBackend.POSTGRES) {
+            eventSearchRepository.createSearchStructures();
+            log.info("Для поиска событий созданы tsvector-колонка и триграммные индексы");
+        }
+    }
+}
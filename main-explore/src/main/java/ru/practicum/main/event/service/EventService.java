@@ -1,6 +1,7 @@
 package ru.practicum.main.event.service;
 
 import ru.practicum.main.event.dto.*;
+import ru.practicum.main.pagination.CursorPage;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,14 +16,15 @@ public interface EventService {
 
     EventFullDto updateEventByInitiator(Long userId, Long eventId, UpdateEventUserRequest updateEventUserRequest);
 
-    List<EventFullDto> searchEvents(List<Long> users, List<String> states, List<Long> categories,
-                                    LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size);
+    CursorPage<EventFullDto> searchEvents(List<Long> users, List<String> states, List<Long> categories,
+                                          LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size,
+                                          String cursor);
 
     EventFullDto updateEventByAdmin(Long eventId, UpdateEventAdminRequest updateEventAdminRequest);
 
-    List<EventShortDto> getPublishedEvents(String text, List<Long> categories, Boolean paid,
-                                           LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable,
-                                           String sort, Integer from, Integer size, String ip);
+    CursorPage<EventShortDto> getPublishedEvents(String text, List<Long> categories, Boolean paid,
+                                                 LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable,
+                                                 String sort, Integer from, Integer size, String cursor, String ip);
 
     EventFullDto getPublishedEventById(Long eventId, String ip);
 }
@@ -1,41 +1,50 @@
 package ru.practicum.main.event.service;
 
 import jakarta.persistence.criteria.Predicate;
-import jakarta.persistence.criteria.Root;
-import jakarta.persistence.criteria.Subquery;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.main.category.model.Category;
 import ru.practicum.main.category.repository.CategoryRepository;
+import ru.practicum.main.category.service.CategorySnapshot;
 import ru.practicum.main.event.dto.*;
 import ru.practicum.main.event.mapper.EventMapper;
 import ru.practicum.main.event.model.Event;
 import ru.practicum.main.event.repository.EventRepository;
+import ru.practicum.main.event.repository.EventFunctionContributor;
+import ru.practicum.main.event.repository.EventSearchRankFunction;
+import ru.practicum.main.event.repository.EventSummaryRepository.EventKey;
+import ru.practicum.main.event.repository.EventSummaryRepository.EventSummary;
 import ru.practicum.main.exception.BadRequestException;
 import ru.practicum.main.exception.DataIntegrityViolationException;
 import ru.practicum.main.exception.NotFoundException;
 import ru.practicum.main.location.mapper.LocationMapper;
 import ru.practicum.main.location.model.Location;
 import ru.practicum.main.location.repository.LocationRepository;
-import ru.practicum.main.request.dto.RequestStatus;
-import ru.practicum.main.request.model.ParticipationRequest;
-import ru.practicum.main.request.repository.RequestRepository;
+import ru.practicum.main.pagination.CursorPage;
+import ru.practicum.main.pagination.KeysetSpecifications;
+import ru.practicum.main.pagination.OffsetPageRequest;
+import ru.practicum.main.pagination.PageCursor;
 import ru.practicum.main.user.model.User;
 import ru.practicum.main.user.repository.UserRepository;
-import ru.practicum.stats.client.HitClient;
-import ru.practicum.stats.client.StatsClient;
+import ru.practicum.stats.client.HitPublisher;
 import ru.practicum.stats.dto.HitDto;
-import ru.practicum.stats.dto.ViewStatsDto;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -43,23 +52,34 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class EventServiceImpl implements EventService {
 
-    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final String EVENT_DATE_CURSOR = "eventDate";
+    private static final String VIEWS_CURSOR = "views";
+    private static final String[] DETAILS = {"initiator", "location"};
 
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
     private final LocationRepository locationRepository;
-    private final RequestRepository requestRepository;
-    private final HitClient hitClient;
-    private final StatsClient statsClient;
+    private final HitPublisher hitPublisher;
+    private final EventViewsCache eventViewsCache;
+    private final EventSearchIndex eventSearchIndex;
+    private final ConfirmedRequestsCache confirmedRequestsCache;
+    private final EventDetailsCache eventDetailsCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategorySnapshot categorySnapshot;
+
+    @Value("${events.search.backend:MEMORY}")
+    private EventSearchBackend searchBackend;
 
     @Override
     public List<EventShortDto> getEventsByInitiator(Long userId, Integer from, Integer size) {
         if (!userRepository.existsById(userId)) {
             throw new NotFoundException("User with id=" + userId + " was not found");
         }
-        List<Event> events = eventRepository.findAllByInitiatorId(userId, PageRequest.of(from / size, size));
-        List<EventShortDto> dtos = EventMapper.toEventShortDto(events);
+        Specification<Event> spec = (root, query, criteriaBuilder) ->
+                criteriaBuilder.equal(root.get("initiator").get("id"), userId);
+        List<EventSummary> events = eventRepository.findSummaries(spec, OffsetPageRequest.of(from, size, Sort.by("id")));
+        List<EventShortDto> dtos = EventMapper.summariesToEventShortDto(events, categorySnapshot::resolve);
         enrichEvents(dtos);
         return dtos;
     }
@@ -73,8 +93,7 @@ public class EventServiceImpl implements EventService {
 
         User initiator = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("User with id=" + userId + " was not found"));
-        Category category = categoryRepository.findById(newEventDto.getCategory())
-                .orElseThrow(() -> new NotFoundException("Category with id=" + newEventDto.getCategory() + " was not found"));
+        Category category = categoryReference(newEventDto.getCategory());
 
         Location location = locationRepository.findByLatAndLon(newEventDto.getLocation().getLat(), newEventDto.getLocation().getLon())
                 .orElseGet(() -> locationRepository.save(LocationMapper.toLocation(newEventDto.getLocation())));
@@ -82,7 +101,7 @@ public class EventServiceImpl implements EventService {
         Event event = EventMapper.toEvent(newEventDto, category, initiator, LocalDateTime.now());
         event.setLocation(location);
 
-        return EventMapper.toEventFullDto(eventRepository.save(event));
+        return toEventFullDto(eventRepository.save(event));
     }
 
     @Override
@@ -92,7 +111,7 @@ public class EventServiceImpl implements EventService {
         }
         Event event = eventRepository.findByIdAndInitiatorId(eventId, userId)
                 .orElseThrow(() -> new NotFoundException("Event with id=" + eventId + " was not found"));
-        EventFullDto dto = EventMapper.toEventFullDto(event);
+        EventFullDto dto = toEventFullDto(event);
         enrichEvents(List.of(dto));
         return dto;
     }
@@ -103,7 +122,7 @@ public class EventServiceImpl implements EventService {
         if (!userRepository.existsById(userId)) {
             throw new NotFoundException("User with id=" + userId + " was not found");
         }
-        Event event = eventRepository.findById(eventId)
+        Event event = eventRepository.findWithDetailsById(eventId)
                 .orElseThrow(() -> new NotFoundException("Event with id=" + eventId + " was not found"));
 
         if (!event.getInitiator().getId().equals(userId)) {
@@ -118,8 +137,7 @@ public class EventServiceImpl implements EventService {
             event.setAnnotation(updateRequest.getAnnotation());
         }
         if (updateRequest.getCategory() != null) {
-            Category category = categoryRepository.findById(updateRequest.getCategory())
-                    .orElseThrow(() -> new NotFoundException("Category with id=" + updateRequest.getCategory() + " was not found"));
+            Category category = categoryReference(updateRequest.getCategory());
             event.setCategory(category);
         }
         if (updateRequest.getDescription() != null) {
@@ -150,13 +168,17 @@ public class EventServiceImpl implements EventService {
                 event.setState(EventState.CANCELED);
             }
         }
-        EventFullDto dto = EventMapper.toEventFullDto(eventRepository.save(event));
+        EventFullDto dto = toEventFullDto(eventRepository.save(event));
+        eventPublisher.publishEvent(new EventChangedEvent(eventId));
         enrichEvents(List.of(dto));
         return dto;
     }
 
     @Override
-    public List<EventFullDto> searchEvents(List<Long> users, List<String> states, List<Long> categories, LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size) {
+    public CursorPage<EventFullDto> searchEvents(List<Long> users, List<String> states, List<Long> categories,
+                                                 LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size,
+                                                 String cursor) {
+        PageCursor after = PageCursor.decode(cursor, EVENT_DATE_CURSOR);
         Specification<Event> spec = (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new java.util.ArrayList<>();
             if (users != null && !users.isEmpty()) {
@@ -177,24 +199,34 @@ public class EventServiceImpl implements EventService {
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
 
-        List<Event> events = eventRepository.findAll(spec, PageRequest.of(from / size, size, Sort.by("eventDate"))).getContent();
-        List<EventFullDto> dtos = EventMapper.toEventFullDto(events);
-        enrichEvents(dtos);
-        return dtos;
+        Sort order = Sort.by("eventDate").and(Sort.by("id"));
+        List<Event> events;
+        if (after == null) {
+            events = eventRepository.findPage(spec, OffsetPageRequest.of(from, size, order));
+        } else {
+            events = eventRepository.findBy(
+                    spec.and(KeysetSpecifications.after("eventDate", Sort.Direction.ASC, after.dateTimeKey(), after.id())),
+                    query -> query.sortBy(order).limit(size).project(DETAILS).all());
+        }
+        return CursorPage.of(events, size, event -> PageCursor.of(EVENT_DATE_CURSOR, event.getEventDate(), event.getId()),
+                rows -> {
+                    List<EventFullDto> dtos = toEventFullDto(rows);
+                    enrichEvents(dtos);
+                    return dtos;
+                });
     }
 
     @Override
     @Transactional
     public EventFullDto updateEventByAdmin(Long eventId, UpdateEventAdminRequest updateRequest) {
-        Event event = eventRepository.findById(eventId)
+        Event event = eventRepository.findWithDetailsById(eventId)
                 .orElseThrow(() -> new NotFoundException("Event with id=" + eventId + " was not found"));
 
         if (updateRequest.getAnnotation() != null) {
             event.setAnnotation(updateRequest.getAnnotation());
         }
         if (updateRequest.getCategory() != null) {
-            Category category = categoryRepository.findById(updateRequest.getCategory())
-                    .orElseThrow(() -> new NotFoundException("Category with id=" + updateRequest.getCategory() + " was not found"));
+            Category category = categoryReference(updateRequest.getCategory());
             event.setCategory(category);
         }
         if (updateRequest.getDescription() != null) {
@@ -241,28 +273,57 @@ public class EventServiceImpl implements EventService {
             }
         }
 
-        EventFullDto dto = EventMapper.toEventFullDto(eventRepository.save(event));
+        Event savedEvent = eventRepository.save(event);
+        eventSearchIndex.update(savedEvent);
+        eventPublisher.publishEvent(new EventChangedEvent(eventId));
+        EventFullDto dto = toEventFullDto(savedEvent);
         enrichEvents(List.of(dto));
         return dto;
     }
 
     @Override
-    public List<EventShortDto> getPublishedEvents(String text, List<Long> categories, Boolean paid,
-                                                  LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable,
-                                                  String sort, Integer from, Integer size, String ip) {
+    public CursorPage<EventShortDto> getPublishedEvents(String text, List<Long> categories, Boolean paid,
+                                                        LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable,
+                                                        String sort, Integer from, Integer size, String cursor, String ip) {
         if (rangeStart != null && rangeEnd != null && rangeStart.isAfter(rangeEnd)) {
             throw new BadRequestException("The start of the range cannot be after the end of the range.");
         }
-        hitClient.createHit(new HitDto("ewm-main-service", "/events", ip, LocalDateTime.now()));
+        boolean byRelevance = sort != null && sort.equalsIgnoreCase("RELEVANCE");
+        boolean byViews = sort != null && sort.equalsIgnoreCase("VIEWS");
+        if (byRelevance && cursor != null) {
+            throw new BadRequestException("Cursor pagination is not supported for sort=RELEVANCE");
+        }
+        PageCursor after = PageCursor.decode(cursor, byViews ? VIEWS_CURSOR : EVENT_DATE_CURSOR);
+        hitPublisher.publish(new HitDto("ewm-main-service", "/events", ip, LocalDateTime.now()));
+        Map<Long, Integer> candidates = text == null ? null : eventSearchIndex.search(text).orElse(null);
+        if (candidates != null && candidates.isEmpty()) {
+            return CursorPage.last(new ArrayList<>());
+        }
+        boolean rankInDatabase = byRelevance && text != null && searchBackend == EventSearchBackend.POSTGRES;
+        // The index answers single words exactly, the substring predicate is then redundant
+        boolean matchedByIndex = candidates != null && eventSearchIndex.matchesExactly(text);
+        String candidateIds = candidates == null ? null : EventFunctionContributor.toList(candidates.keySet());
         Specification<Event> spec = (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new java.util.ArrayList<>();
             predicates.add(criteriaBuilder.equal(root.get("state"), EventState.PUBLISHED));
-            if (text != null) {
+            if (text != null && !matchedByIndex) {
+                String pattern = "%" + text.toLowerCase(Locale.ROOT) + "%";
                 predicates.add(criteriaBuilder.or(
-                        criteriaBuilder.like(criteriaBuilder.lower(root.get("annotation")), "%" + text.toLowerCase() + "%"),
-                        criteriaBuilder.like(criteriaBuilder.lower(root.get("description")), "%" + text.toLowerCase() + "%")
+                        criteriaBuilder.like(criteriaBuilder.lower(root.get("annotation")), pattern),
+                        criteriaBuilder.like(criteriaBuilder.lower(root.get("description")), pattern)
                 ));
             }
+            if (candidateIds != null) {
+                predicates.add(criteriaBuilder.isTrue(criteriaBuilder.function(EventFunctionContributor.ID_IN_LIST,
+                        Boolean.class, root.get("id"), criteriaBuilder.literal(candidateIds))));
+            }
+            if (rankInDatabase) {
+                query.orderBy(
+                        criteriaBuilder.desc(criteriaBuilder.function(EventSearchRankFunction.NAME, Float.class,
+                                root.get("id"), criteriaBuilder.literal(text))),
+                        criteriaBuilder.asc(root.get("eventDate"))
+                );
+            }
             if (categories != null && !categories.isEmpty()) {
                 predicates.add(root.get("category").get("id").in(categories));
             }
@@ -279,93 +340,127 @@ public class EventServiceImpl implements EventService {
                 predicates.add(criteriaBuilder.greaterThan(root.get("eventDate"), LocalDateTime.now()));
             }
             if (onlyAvailable != null && onlyAvailable) {
-                Subquery<Long> subquery = query.subquery(Long.class);
-                Root<ParticipationRequest> subRoot = subquery.from(ParticipationRequest.class);
-                subquery.select(criteriaBuilder.count(subRoot.get("id")));
-                subquery.where(
-                        criteriaBuilder.equal(subRoot.get("event").get("id"), root.get("id")),
-                        criteriaBuilder.equal(subRoot.get("status"), RequestStatus.CONFIRMED)
-                );
                 predicates.add(criteriaBuilder.or(
                         criteriaBuilder.equal(root.get("participantLimit"), 0),
-                        criteriaBuilder.greaterThan(root.get("participantLimit"), subquery)
+                        criteriaBuilder.gt(root.<Integer>get("participantLimit"), root.<Long>get("confirmedRequests"))
                 ));
             }
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
 
-        PageRequest pageRequest;
-        if (sort != null && sort.equalsIgnoreCase("VIEWS")) {
-            pageRequest = PageRequest.of(from / size, size);
+        if (byRelevance) {
+            List<EventSummary> events;
+            if (candidates != null) {
+                // Ranks the keys of all matches and loads the summaries of the requested page only
+                List<Long> pageIds = eventRepository.findKeys(spec).stream()
+                        .sorted(Comparator.comparing((EventKey event) -> candidates.get(event.id())).reversed()
+                                .thenComparing(EventKey::eventDate))
+                        .skip(from)
+                        .limit(size)
+                        .map(EventKey::id)
+                        .collect(Collectors.toList());
+                Map<Long, EventSummary> summaries = pageIds.isEmpty() ? Map.of() : eventRepository.findSummaries(
+                                (root, query, criteriaBuilder) -> root.get("id").in(pageIds), Pageable.unpaged()).stream()
+                        .collect(Collectors.toMap(EventSummary::id, Function.identity()));
+                events = pageIds.stream()
+                        .map(summaries::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList());
+            } else {
+                Sort order = rankInDatabase ? Sort.unsorted() : Sort.by("eventDate").and(Sort.by("id"));
+                events = eventRepository.findSummaries(spec, OffsetPageRequest.of(from, size, order));
+            }
+            List<EventShortDto> dtos = EventMapper.summariesToEventShortDto(events, categorySnapshot::resolve);
+            enrichEvents(dtos);
+            return CursorPage.last(dtos);
+        }
+
+        Sort order;
+        Specification<Event> seek = null;
+        Function<EventSummary, PageCursor> cursorOf;
+        if (byViews) {
+            order = Sort.by(Sort.Direction.DESC, "views").and(Sort.by("id"));
+            if (after != null) {
+                seek = KeysetSpecifications.after("views", Sort.Direction.DESC, after.longKey(), after.id());
+            }
+            cursorOf = event -> PageCursor.of(VIEWS_CURSOR, event.views(), event.id());
         } else {
-            pageRequest = PageRequest.of(from / size, size, Sort.by(Sort.Direction.ASC, "eventDate"));
-        }
-
-        List<Event> events = eventRepository.findAll(spec, pageRequest).getContent();
-        List<EventShortDto> dtos = EventMapper.toEventShortDto(events);
-        enrichEvents(dtos);
-
-        if (sort != null && sort.equalsIgnoreCase("VIEWS")) {
-            dtos.sort(Comparator.comparing(EventShortDto::getViews).reversed());
-        }
-
+            order = Sort.by("eventDate").and(Sort.by("id"));
+            if (after != null) {
+                seek = KeysetSpecifications.after("eventDate", Sort.Direction.ASC, after.dateTimeKey(), after.id());
+            }
+            cursorOf = event -> PageCursor.of(EVENT_DATE_CURSOR, event.eventDate(), event.id());
+        }
+        List<EventSummary> events = seek == null
+                ? eventRepository.findSummaries(spec, OffsetPageRequest.of(from, size, order))
+                : eventRepository.findSummaries(spec.and(seek), OffsetPageRequest.of(0, size, order));
+        return CursorPage.of(events, size, cursorOf, rows -> {
+            List<EventShortDto> dtos = EventMapper.summariesToEventShortDto(rows, categorySnapshot::resolve);
+            enrichEvents(dtos);
             return dtos;
+        });
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EventFullDto getPublishedEventById(Long eventId, String ip) {
-        Event event = eventRepository.findById(eventId)
-                .orElseThrow(() -> new NotFoundException("Event with id=" + eventId + " was not found"));
-        if (event.getState() != EventState.PUBLISHED) {
-            throw new NotFoundException("Event with id=" + eventId + " was not found");
-        }
-
-        EventFullDto dto = EventMapper.toEventFullDto(event);
-        enrichEvents(List.of(dto));
+        EventFullDto dto = eventDetailsCache.get(eventId, id -> {
+            Event event = eventRepository.findWithDetailsById(id)
+                    .orElseThrow(() -> new NotFoundException("Event with id=" + id + " was not found"));
+            if (event.getState() != EventState.PUBLISHED) {
+                throw new NotFoundException("Event with id=" + id + " was not found");
+            }
+            return toEventFullDto(event);
+        });
+        // Looked up only once the event is known to be published, while the confirmed requests are read
+        CompletableFuture<Map<Long, Long>> views = eventViewsCache.getViewsAsync(List.of(eventId));
+        dto.setConfirmedRequests(confirmedRequestsCache.get(List.of(eventId)).getOrDefault(eventId, 0L));
+        applyViews(List.of(dto), views.join());
 
-        hitClient.createHit(new HitDto("ewm-main-service", "/events/" + eventId, ip, LocalDateTime.now()));
+        hitPublisher.publish(new HitDto("ewm-main-service", "/events/" + eventId, ip, LocalDateTime.now()));
 
         dto.setViews(dto.getViews() + 1);
 
         return dto;
     }
 
+    private EventFullDto toEventFullDto(Event event) {
+        return EventMapper.toEventFullDto(event, categorySnapshot.resolve(event.getCategory().getId()));
+    }
+
+    private List<EventFullDto> toEventFullDto(List<Event> events) {
+        return events.stream().map(this::toEventFullDto).collect(Collectors.toList());
+    }
+
+    private Category categoryReference(Long catId) {
+        if (!categorySnapshot.contains(catId) && !categoryRepository.existsById(catId)) {
+            throw new NotFoundException("Category with id=" + catId + " was not found");
+        }
+        return categoryRepository.getReferenceById(catId);
+    }
+
     private <T extends EnrichableEventDto> void enrichEvents(List<T> dtos) {
         enrichWithViews(dtos);
-        enrichWithConfirmedRequests(dtos);
     }
 
     private <T extends EnrichableEventDto> void enrichWithViews(List<T> dtos) {
         if (dtos == null || dtos.isEmpty()) {
             return;
         }
-        List<String> uris = dtos.stream()
-                .map(dto -> "/events/" + dto.getId())
-                .collect(Collectors.toList());
-
-        LocalDateTime start = MIN_DATE;
-
-        ResponseEntity<List<ViewStatsDto>> response = statsClient.getStats(start, LocalDateTime.now(), uris, true);
-        List<ViewStatsDto> viewStats = response.getBody();
-
-        if (viewStats != null) {
-            Map<Long, Long> viewsMap = viewStats.stream()
-                    .collect(Collectors.toMap(
-                            stat -> Long.parseLong(stat.getUri().substring("/events/".length())),
-                            ViewStatsDto::getHits
-                    ));
-            dtos.forEach(dto -> dto.setViews(viewsMap.getOrDefault(dto.getId(), 0L)));
-        }
+        applyViews(dtos, eventViewsCache.getViews(dtos.stream().map(T::getId).collect(Collectors.toList())));
     }
 
-    private <T extends EnrichableEventDto> void enrichWithConfirmedRequests(List<T> dtos) {
-        if (dtos == null || dtos.isEmpty()) {
-            return;
+    /**
+     * Events the stats server did not answer for keep the views the DTO was built with, copied from events.views.
+     */
+    private <T extends EnrichableEventDto> void applyViews(List<T> dtos, Map<Long, Long> viewsMap) {
+        for (T dto : dtos) {
+            Long views = viewsMap.get(dto.getId());
+            if (views == null) {
+                dto.setViewsPartial(true);
+            } else {
+                dto.setViews(views);
+            }
         }
-        List<Long> eventIds = dtos.stream().map(T::getId).collect(Collectors.toList());
-        Map<Long, Long> confirmedRequestsMap = requestRepository.countConfirmedRequestsForEvents(eventIds).stream()
-                .collect(Collectors.toMap(RequestRepository.ConfirmedRequests::getEventId, RequestRepository.ConfirmedRequests::getConfirmedRequests));
-
-        dtos.forEach(dto -> dto.setConfirmedRequests(confirmedRequestsMap.getOrDefault(dto.getId(), 0L)));
     }
 }
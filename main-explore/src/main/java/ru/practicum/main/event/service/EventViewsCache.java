@@ -0,0 +1,195 @@
+package ru.practicum.main.event.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.client.StatsClient;
+import ru.practicum.stats.dto.StatsQueryDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps recent unique view counts of events so that listings do not call the stats server for every response.
+ * <p>
+ * Misses are fetched in one stats call. Counts older than {@code refresh-after} are still served, and are
+ * refreshed for all such events of a response in one background call; counts older than {@code ttl} are never
+ * served. Events nobody asked for during {@code expire-after-access} are evicted.
+ * <p>
+ * A miss is waited for at most {@code load-timeout}. Events whose views are not known by then, or whose load failed,
+ * are left out of the result and callers keep their last known value; a late answer still fills the cache.
+ * At most {@code max-concurrent-loads} misses are fetched at a time, since each one holds its loader thread until
+ * the stats server answers; beyond that, misses are answered without views at once.
+ */
+@Slf4j
+@Component
+public class EventViewsCache implements DisposableBean {
+
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final String EVENT_URI_PREFIX = "/events/";
+
+    private final StatsClient statsClient;
+    private final Cache<Long, Views> cache;
+    private final Duration refreshAfter;
+    private final ExecutorService refresher;
+    private final ExecutorService loader;
+    private final Duration loadTimeout;
+    private final Semaphore loads;
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final Counter refreshes;
+    private final Counter loadTimeouts;
+    private final Counter loadsSkipped;
+
+    public EventViewsCache(StatsClient statsClient,
+                           MeterRegistry meterRegistry,
+                           @Value("${events.views-cache.max-size:100000}") long maxSize,
+                           @Value("${events.views-cache.ttl:PT1M}") Duration ttl,
+                           @Value("${events.views-cache.refresh-after:PT5S}") Duration refreshAfter,
+                           @Value("${events.views-cache.expire-after-access:PT30M}") Duration expireAfterAccess,
+                           @Value("${events.views-cache.load-timeout:PT0.3S}") Duration loadTimeout,
+                           @Value("${events.views-cache.max-concurrent-loads:16}") int maxConcurrentLoads) {
+        this.statsClient = statsClient;
+        this.refreshAfter = refreshAfter;
+        this.loadTimeout = loadTimeout;
+        this.loads = new Semaphore(maxConcurrentLoads);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .build();
+        this.refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-views-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loader = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("event-views-loader-", 0).factory());
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "event-views");
+        this.refreshes = Counter.builder("events.views.cache.refreshes")
+                .description("Background refreshes of stale view counts")
+                .register(meterRegistry);
+        this.loadTimeouts = Counter.builder("events.views.cache.load-timeouts")
+                .description("Misses answered without views because the stats server was too slow")
+                .register(meterRegistry);
+        this.loadsSkipped = Counter.builder("events.views.cache.loads-skipped")
+                .description("Misses answered without views because max-concurrent-loads were already running")
+                .register(meterRegistry);
+    }
+
+    public Map<Long, Long> getViews(Collection<Long> eventIds) {
+        return getViewsAsync(eventIds).join();
+    }
+
+    /**
+     * Starts the lookup at once and completes within load-timeout, so callers can do other work meanwhile.
+     */
+    public CompletableFuture<Map<Long, Long>> getViewsAsync(Collection<Long> eventIds) {
+        Map<Long, Long> views = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        List<Long> stale = new ArrayList<>();
+        LocalDateTime refreshBefore = LocalDateTime.now().minus(refreshAfter);
+        for (Long eventId : eventIds) {
+            Views cached = cache.getIfPresent(eventId);
+            if (cached == null) {
+                missing.add(eventId);
+                continue;
+            }
+            views.put(eventId, cached.views());
+            if (cached.loadedAt().isBefore(refreshBefore) && refreshing.add(eventId)) {
+                stale.add(eventId);
+            }
+        }
+        if (!stale.isEmpty()) {
+            refreshes.increment();
+            refresher.execute(() -> {
+                try {
+                    load(stale);
+                } catch (RuntimeException e) {
+                    log.warn("Не удалось обновить просмотры событий {}: {}", stale, e.getMessage());
+                } finally {
+                    stale.forEach(refreshing::remove);
+                }
+            });
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(views);
+        }
+        if (!loads.tryAcquire()) {
+            loadsSkipped.increment();
+            return CompletableFuture.completedFuture(views);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return load(missing);
+                    } finally {
+                        loads.release();
+                    }
+                }, loader)
+                .exceptionally(e -> {
+                    log.warn("Не удалось получить просмотры событий {}: {}", missing, e.getMessage());
+                    return Map.of();
+                })
+                .completeOnTimeout(null, loadTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(loaded -> {
+                    if (loaded == null) {
+                        loadTimeouts.increment();
+                    } else {
+                        views.putAll(loaded);
+                    }
+                    return views;
+                });
+    }
+
+    private Map<Long, Long> load(List<Long> eventIds) {
+        LocalDateTime loadedAt = LocalDateTime.now();
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(MIN_DATE)
+                .end(loadedAt)
+                .uriPrefix(EVENT_URI_PREFIX)
+                .ids(eventIds)
+                .unique(true)
+                .build();
+        List<ViewStatsDto> viewStats = statsClient.queryStats(query).getBody();
+        if (viewStats == null) {
+            return Map.of();
+        }
+        Map<Long, Long> views = viewStats.stream()
+                .collect(Collectors.toMap(
+                        stat -> Long.parseLong(stat.getUri().substring(EVENT_URI_PREFIX.length())),
+                        ViewStatsDto::getHits,
+                        Long::sum
+                ));
+        eventIds.forEach(eventId -> views.putIfAbsent(eventId, 0L));
+        views.forEach((eventId, count) -> cache.put(eventId, new Views(count, loadedAt)));
+        return views;
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+        loader.shutdownNow();
+    }
+
+    private record Views(long views, LocalDateTime loadedAt) {
+    }
+}
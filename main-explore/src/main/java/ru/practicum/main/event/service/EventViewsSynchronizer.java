@@ -0,0 +1,137 @@
+package ru.practicum.main.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.main.event.dto.EventState;
+import ru.practicum.main.event.repository.EventRepository;
+import ru.practicum.main.event.repository.EventViewsRepository;
+import ru.practicum.stats.client.StatsClient;
+import ru.practicum.stats.dto.StatsQueryDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Copies unique event views from the stats server into events.views so that sort=VIEWS can page over an index.
+ * <p>
+ * The very first run recounts every published event. Later runs ask the stats server which event pages were viewed
+ * since the previous run, minus an overlap for hits still on their way, and recount only those events. The time of
+ * the last successful run is kept in event_views_sync, so a restart continues from it instead of recounting everything.
+ */
+@Slf4j
+@Component
+public class EventViewsSynchronizer {
+
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final String EVENT_URI_PREFIX = "/events/";
+    private static final Pattern EVENT_URI = Pattern.compile("^/events/(\\d+)$");
+
+    private final StatsClient statsClient;
+    private final EventRepository eventRepository;
+    private final EventViewsRepository eventViewsRepository;
+    private final Duration overlap;
+    private final int batchSize;
+    private LocalDateTime lastSync;
+
+    public EventViewsSynchronizer(StatsClient statsClient,
+                                  EventRepository eventRepository,
+                                  EventViewsRepository eventViewsRepository,
+                                  @Value("${events.views-sync.overlap:PT1M}") Duration overlap,
+                                  @Value("${events.views-sync.batch-size:1000}") int batchSize) {
+        this.statsClient = statsClient;
+        this.eventRepository = eventRepository;
+        this.eventViewsRepository = eventViewsRepository;
+        this.overlap = overlap;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${events.views-sync.interval-ms:10000}")
+    public void synchronize() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            if (lastSync == null) {
+                lastSync = eventViewsRepository.findSyncedUntil().orElse(null);
+            }
+            int updated = lastSync == null ? synchronizeAll(now) : synchronizeViewedSince(lastSync.minus(overlap), now);
+            eventViewsRepository.saveSyncedUntil(now);
+            lastSync = now;
+            log.debug("Синхронизированы просмотры {} событий", updated);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось синхронизировать просмотры событий: {}", e.getMessage());
+        }
+    }
+
+    private int synchronizeAll(LocalDateTime now) {
+        int updated = 0;
+        long afterId = 0;
+        List<Long> eventIds;
+        do {
+            eventIds = eventRepository.findIdsAfter(EventState.PUBLISHED, afterId, PageRequest.of(0, batchSize));
+            if (!eventIds.isEmpty()) {
+                updated += recount(eventIds, now);
+                afterId = eventIds.get(eventIds.size() - 1);
+            }
+        } while (eventIds.size() == batchSize);
+        return updated;
+    }
+
+    private int synchronizeViewedSince(LocalDateTime since, LocalDateTime now) {
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(since)
+                .end(now)
+                .build();
+        List<ViewStatsDto> viewed = statsClient.queryStats(query).getBody();
+        if (viewed == null) {
+            return 0;
+        }
+        Set<Long> eventIds = viewed.stream()
+                .map(stat -> EVENT_URI.matcher(stat.getUri()))
+                .filter(Matcher::matches)
+                .map(matcher -> Long.parseLong(matcher.group(1)))
+                .collect(Collectors.toSet());
+        List<Long> batch = new ArrayList<>();
+        int updated = 0;
+        for (Long eventId : eventIds) {
+            batch.add(eventId);
+            if (batch.size() == batchSize) {
+                updated += recount(batch, now);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            updated += recount(batch, now);
+        }
+        return updated;
+    }
+
+    private int recount(List<Long> eventIds, LocalDateTime now) {
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(MIN_DATE)
+                .end(now)
+                .uriPrefix(EVENT_URI_PREFIX)
+                .ids(eventIds)
+                .unique(true)
+                .build();
+        List<ViewStatsDto> stats = Objects.requireNonNullElse(statsClient.queryStats(query).getBody(), List.of());
+        Map<Long, Long> views = stats.stream()
+                .collect(Collectors.toMap(
+                        stat -> Long.parseLong(stat.getUri().substring(EVENT_URI_PREFIX.length())),
+                        ViewStatsDto::getHits,
+                        Long::sum
+                ));
+        eventViewsRepository.updateViews(views);
+        return views.size();
+    }
+}
@@ -0,0 +1,35 @@
+package ru.practicum.main.pagination;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a listing together with the cursor of the page after it, null when this page is the last one.
+ */
+public record CursorPage<T>(List<T> content, String nextCursor) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * A full page may be followed by another one, so it gets a cursor made from its last row.
+     */
+    public static <T, E> CursorPage<T> of(List<E> rows, int size, Function<E, PageCursor> cursor,
+                                          Function<List<E>, List<T>> mapper) {
+        String nextCursor = rows.size() == size && size > 0 ? cursor.apply(rows.get(rows.size() - 1)).encode() : null;
+        return new CursorPage<>(mapper.apply(rows), nextCursor);
+    }
+
+    public static <T> CursorPage<T> last(List<T> content) {
+        return new CursorPage<>(content, null);
+    }
+
+    public ResponseEntity<List<T>> toResponseEntity() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return response.body(content);
+    }
+}
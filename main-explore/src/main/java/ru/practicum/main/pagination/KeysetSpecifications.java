@@ -0,0 +1,31 @@
+package ru.practicum.main.pagination;
+
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Seek predicates selecting the rows that follow a cursor, for listings ordered by (key, id) or by id alone.
+ * Ties on the key are always broken by ascending id.
+ */
+public class KeysetSpecifications {
+
+    public static <T> Specification<T> afterId(Long id) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.greaterThan(root.get("id"), id);
+    }
+
+    public static <T, K extends Comparable<? super K>> Specification<T> after(String attribute, Sort.Direction direction,
+                                                                             K key, Long id) {
+        return (root, query, criteriaBuilder) -> {
+            Path<K> keyPath = root.get(attribute);
+            Predicate beyondKey = direction.isAscending()
+                    ? criteriaBuilder.greaterThan(keyPath, key)
+                    : criteriaBuilder.lessThan(keyPath, key);
+            return criteriaBuilder.or(
+                    beyondKey,
+                    criteriaBuilder.and(criteriaBuilder.equal(keyPath, key), criteriaBuilder.greaterThan(root.get("id"), id))
+            );
+        };
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.main.pagination;
+
+import ru.practicum.main.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token of a listing: the sort it belongs to, the sort key of the last returned row and its id.
+ * The next page starts right after that row, so reading it costs the same whatever its depth.
+ */
+public record PageCursor(String sort, String key, long id) {
+
+    private static final String SEPARATOR = "\n";
+
+    public static PageCursor of(String sort, Object key, long id) {
+        return new PageCursor(sort, key == null ? "" : key.toString(), id);
+    }
+
+    /**
+     * Returns null when no cursor was given.
+     */
+    public static PageCursor decode(String token, String expectedSort) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+            if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+                throw new BadRequestException("Cursor does not belong to this listing");
+            }
+            return new PageCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = sort + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long longKey() {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public LocalDateTime dateTimeKey() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.main.request.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.main.request.service.WaitingRoom;
+
+@RestController
+@RequestMapping("/admin/events/{eventId}/waiting-room")
+@RequiredArgsConstructor
+public class AdminWaitingRoomController {
+
+    private final WaitingRoom waitingRoom;
+
+    @PutMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void openWaitingRoom(@PathVariable Long eventId) {
+        waitingRoom.open(eventId);
+    }
+
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void closeWaitingRoom(@PathVariable Long eventId) {
+        waitingRoom.close(eventId);
+    }
+}
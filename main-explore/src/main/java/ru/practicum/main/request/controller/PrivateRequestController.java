@@ -2,9 +2,12 @@ package ru.practicum.main.request.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.main.request.dto.ParticipationRequestDto;
+import ru.practicum.main.request.dto.QueuedRequestDto;
 import ru.practicum.main.request.service.RequestService;
+import ru.practicum.main.request.service.WaitingRoom;
 
 import java.util.List;
 
@@ -14,17 +17,29 @@ import java.util.List;
 public class PrivateRequestController {
 
     private final RequestService requestService;
+    private final WaitingRoom waitingRoom;
 
     @GetMapping
     public List<ParticipationRequestDto> getUserRequests(@PathVariable Long userId) {
         return requestService.getUserRequests(userId);
     }
 
+    /**
+     * Answers 202 with a ticket of the waiting room instead of 201 while the event is hot.
+     */
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public ParticipationRequestDto createRequest(@PathVariable Long userId,
-                                                 @RequestParam Long eventId) {
-        return requestService.createRequest(userId, eventId);
+    public ResponseEntity<?> createRequest(@PathVariable Long userId,
+                                           @RequestParam Long eventId) {
+        if (waitingRoom.isHot(eventId)) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(waitingRoom.enqueue(userId, eventId));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(requestService.createRequest(userId, eventId));
+    }
+
+    @GetMapping("/queue/{ticket}")
+    public QueuedRequestDto getQueuedRequest(@PathVariable Long userId,
+                                             @PathVariable String ticket) {
+        return waitingRoom.getTicket(userId, ticket);
     }
 
     @PatchMapping("/{requestId}/cancel")
@@ -0,0 +1,7 @@
+package ru.practicum.main.request.dto;
+
+public enum QueueState {
+    QUEUED,
+    ADMITTED,
+    REJECTED
+}
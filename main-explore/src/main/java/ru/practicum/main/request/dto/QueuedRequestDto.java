@@ -0,0 +1,20 @@
+package ru.practicum.main.request.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueuedRequestDto {
+    private String ticket;
+    private Long event;
+    private Long requester;
+    private QueueState state;
+    private Long position;
+    private ParticipationRequestDto request;
+    private String error;
+}
@@ -1,7 +1,9 @@
 package ru.practicum.main.request.mapper;
 
 import ru.practicum.main.request.dto.ParticipationRequestDto;
+import ru.practicum.main.request.dto.RequestStatus;
 import ru.practicum.main.request.model.ParticipationRequest;
+import ru.practicum.main.request.repository.RequestRepository.ChangedRequest;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -24,4 +26,19 @@ public class RequestMapper {
         }
         return dtos;
     }
+
+    public static List<ParticipationRequestDto> toParticipationRequestDto(Iterable<ChangedRequest> requests,
+                                                                          RequestStatus status) {
+        List<ParticipationRequestDto> dtos = new ArrayList<>();
+        for (ChangedRequest request : requests) {
+            dtos.add(new ParticipationRequestDto(
+                    request.getId(),
+                    request.getEvent(),
+                    request.getRequester(),
+                    status,
+                    request.getCreated()
+            ));
+        }
+        return dtos;
+    }
 }
@@ -3,9 +3,10 @@ package ru.practicum.main.request.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import ru.practicum.main.request.dto.RequestStatus;
 import ru.practicum.main.request.model.ParticipationRequest;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface RequestRepository extends JpaRepository<ParticipationRequest, Long> {
@@ -13,19 +14,35 @@ public interface RequestRepository extends JpaRepository<ParticipationRequest, L
 
     List<ParticipationRequest> findAllByEventId(Long eventId);
 
-    Boolean existsByRequesterIdAndEventId(Long requesterId, Long eventId);
-
-    Long countByEventIdAndStatus(Long eventId, RequestStatus status);
-
-    @Query("SELECT pr.event.id AS eventId, COUNT(pr.id) AS confirmedRequests " +
-            "FROM ParticipationRequest pr " +
-            "WHERE pr.event.id IN :eventIds AND pr.status = 'CONFIRMED' " +
-            "GROUP BY pr.event.id")
-    List<ConfirmedRequests> countConfirmedRequestsForEvents(@Param("eventIds") List<Long> eventIds);
-
-    interface ConfirmedRequests {
-        Long getEventId();
-
-        Long getConfirmedRequests();
+    /**
+     * Moves the given pending requests of the event to the status and returns the rows it changed.
+     * <p>
+     * This and {@link #rejectPending} are not {@code @Modifying}: UPDATE ... RETURNING produces a result set and has
+     * to be run as a query. Hibernate flushes the session before a native query but does not refresh loaded
+     * ParticipationRequest entities, so callers work with the returned rows only.
+     */
+    @Query(value = "UPDATE requests SET status = :status " +
+            "WHERE id IN :ids AND event_id = :eventId AND status = 'PENDING' " +
+            "RETURNING id, event_id AS event, requester_id AS requester, created", nativeQuery = true)
+    List<ChangedRequest> changePendingStatus(@Param("eventId") Long eventId,
+                                             @Param("ids") Collection<Long> requestIds,
+                                             @Param("status") String status);
+
+    /**
+     * Rejects every request of the event that is still pending and returns the rows it changed.
+     */
+    @Query(value = "UPDATE requests SET status = 'REJECTED' " +
+            "WHERE event_id = :eventId AND status = 'PENDING' " +
+            "RETURNING id, event_id AS event, requester_id AS requester, created", nativeQuery = true)
+    List<ChangedRequest> rejectPending(@Param("eventId") Long eventId);
+
+    interface ChangedRequest {
+        Long getId();
+
+        Long getEvent();
+
+        Long getRequester();
+
+        LocalDateTime getCreated();
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,14 @@
 package ru.practicum.main.request.service;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.main.event.dto.EventState;
 import ru.practicum.main.event.model.Event;
 import ru.practicum.main.event.repository.EventRepository;
+import ru.practicum.main.event.service.ConfirmedRequestsChangedEvent;
 import ru.practicum.main.exception.DataIntegrityViolationException;
 import ru.practicum.main.exception.NotFoundException;
 import ru.practicum.main.request.dto.*;
@@ -17,16 +20,21 @@ import ru.practicum.main.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class RequestServiceImpl implements RequestService {
 
+    private static final String UNIQUE_REQUEST_CONSTRAINT = "uq_request";
+
     private final RequestRepository requestRepository;
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<ParticipationRequestDto> getUserRequests(Long userId) {
@@ -44,10 +52,6 @@ public class RequestServiceImpl implements RequestService {
         Event event = eventRepository.findById(eventId)
                 .orElseThrow(() -> new NotFoundException("Event with id=" + eventId + " was not found"));
 
-        if (requestRepository.existsByRequesterIdAndEventId(userId, eventId)) {
-            throw new DataIntegrityViolationException("Cannot add a repeat request.");
-        }
-
         if (event.getInitiator().getId().equals(userId)) {
             throw new DataIntegrityViolationException("Initiator cannot add a request to their own event.");
         }
@@ -56,8 +60,8 @@ public class RequestServiceImpl implements RequestService {
             throw new DataIntegrityViolationException("Cannot participate in an unpublished event.");
         }
 
-        long confirmedRequests = requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED);
-        if (event.getParticipantLimit() != 0 && confirmedRequests >= event.getParticipantLimit()) {
+        // Fast rejection from the row just read; reserveParticipants below is the authoritative check.
+        if (event.getParticipantLimit() != 0 && event.getConfirmedRequests() >= event.getParticipantLimit()) {
             throw new DataIntegrityViolationException("The participant limit has been reached.");
         }
 
@@ -72,7 +76,23 @@ public class RequestServiceImpl implements RequestService {
             newRequest.setStatus(RequestStatus.PENDING);
         }
 
-        return RequestMapper.toParticipationRequestDto(requestRepository.save(newRequest));
+        ParticipationRequest savedRequest;
+        try {
+            savedRequest = requestRepository.saveAndFlush(newRequest);
+        } catch (org.springframework.dao.DataIntegrityViolationException e) {
+            if (isViolationOf(e, UNIQUE_REQUEST_CONSTRAINT)) {
+                throw new DataIntegrityViolationException("Cannot add a repeat request.");
+            }
+            throw e;
+        }
+        // The guarded increment comes last so that the event row stays locked only until the commit.
+        if (savedRequest.getStatus() == RequestStatus.CONFIRMED) {
+            if (eventRepository.reserveParticipants(eventId, 1) == 0) {
+                throw new DataIntegrityViolationException("The participant limit has been reached.");
+            }
+            eventPublisher.publishEvent(new ConfirmedRequestsChangedEvent(eventId));
+        }
+        return RequestMapper.toParticipationRequestDto(savedRequest);
     }
 
 
@@ -89,6 +109,10 @@ public class RequestServiceImpl implements RequestService {
             throw new DataIntegrityViolationException("User is not the requester of this request.");
         }
 
+        if (request.getStatus() == RequestStatus.CONFIRMED) {
+            eventRepository.addConfirmedRequests(request.getEvent().getId(), -1);
+            eventPublisher.publishEvent(new ConfirmedRequestsChangedEvent(request.getEvent().getId()));
+        }
         request.setStatus(RequestStatus.CANCELED);
         return RequestMapper.toParticipationRequestDto(requestRepository.save(request));
     }
@@ -126,39 +150,47 @@ public class RequestServiceImpl implements RequestService {
             return new EventRequestStatusUpdateResult(new ArrayList<>(), new ArrayList<>());
         }
 
-        List<ParticipationRequest> requests = requestRepository.findAllById(statusUpdateRequest.getRequestIds());
+        Set<Long> requestIds = new HashSet<>(statusUpdateRequest.getRequestIds());
         EventRequestStatusUpdateResult result = new EventRequestStatusUpdateResult(new ArrayList<>(), new ArrayList<>());
-        long confirmedCount = requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED);
+        if (requestIds.isEmpty()) {
+            return result;
+        }
 
-        for (ParticipationRequest request : requests) {
-            if (request.getStatus() != RequestStatus.PENDING) {
-                throw new DataIntegrityViolationException("Request must have status PENDING");
-            }
+        RequestStatus status = statusUpdateRequest.getStatus() == RequestStatusUpdate.CONFIRMED
+                ? RequestStatus.CONFIRMED
+                : RequestStatus.REJECTED;
+        List<RequestRepository.ChangedRequest> changed =
+                requestRepository.changePendingStatus(eventId, requestIds, status.name());
+        if (changed.size() < requestIds.size()) {
+            // Rolls back the rows already changed
+            throw new DataIntegrityViolationException("Request must have status PENDING");
+        }
 
-            if (statusUpdateRequest.getStatus() == RequestStatusUpdate.CONFIRMED) {
-                if (confirmedCount >= event.getParticipantLimit()) {
-                    throw new DataIntegrityViolationException("The participant limit has been reached.");
-                }
-                request.setStatus(RequestStatus.CONFIRMED);
-                result.getConfirmedRequests().add(RequestMapper.toParticipationRequestDto(request));
-                confirmedCount++;
-            } else {
-                request.setStatus(RequestStatus.REJECTED);
-                result.getRejectedRequests().add(RequestMapper.toParticipationRequestDto(request));
-            }
+        if (status == RequestStatus.REJECTED) {
+            result.getRejectedRequests().addAll(RequestMapper.toParticipationRequestDto(changed, RequestStatus.REJECTED));
+            return result;
         }
 
-        if (confirmedCount >= event.getParticipantLimit()) {
-            requestRepository.findAllByEventId(eventId).stream()
-                    .filter(r -> r.getStatus() == RequestStatus.PENDING)
-                    .forEach(r -> {
-                        r.setStatus(RequestStatus.REJECTED);
-                        result.getRejectedRequests().add(RequestMapper.toParticipationRequestDto(r));
-                    });
+        EventRepository.Occupancy occupancy = eventRepository.reserveParticipantsReturning(eventId, changed.size())
+                .orElseThrow(() -> new DataIntegrityViolationException("The participant limit has been reached."));
+        eventPublisher.publishEvent(new ConfirmedRequestsChangedEvent(eventId));
+        result.getConfirmedRequests().addAll(RequestMapper.toParticipationRequestDto(changed, RequestStatus.CONFIRMED));
+
+        // Decided from the row this transaction holds locked, not from the event read before the update
+        if (occupancy.getParticipantLimit() > 0 && occupancy.getConfirmedRequests() >= occupancy.getParticipantLimit()) {
+            result.getRejectedRequests().addAll(RequestMapper.toParticipationRequestDto(
+                    requestRepository.rejectPending(eventId), RequestStatus.REJECTED));
         }
 
-        requestRepository.saveAll(requests);
         return result;
     }
 
-}
\ No newline at end of file
+    private static boolean isViolationOf(Throwable e, String constraint) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return constraint.equalsIgnoreCase(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+}
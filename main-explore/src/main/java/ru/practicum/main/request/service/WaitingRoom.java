@@ -0,0 +1,183 @@
+package ru.practicum.main.request.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.main.exception.BadRequestException;
+import ru.practicum.main.exception.DataIntegrityViolationException;
+import ru.practicum.main.exception.NotFoundException;
+import ru.practicum.main.request.dto.ParticipationRequestDto;
+import ru.practicum.main.request.dto.QueueState;
+import ru.practicum.main.request.dto.QueuedRequestDto;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Queued admission for events expected to draw a crowd as soon as they open.
+ * <p>
+ * While an event is hot, participation requests are not written to the database at once: each one gets a ticket
+ * in a FIFO queue of its event, and a single worker hands at most batch-size tickets per event to
+ * {@link RequestService#createRequest} every drain interval. The events row therefore sees a steady stream of
+ * admissions instead of the whole crowd at once. Requesters poll their ticket for the position or the outcome.
+ * <p>
+ * Queues and tickets live in memory of one instance. A ticket expires once it has not been polled for ticket-ttl,
+ * so requesters that keep polling never lose it however long the queue is. A ticket that expired while queued is
+ * still admitted in turn, and its outcome can be polled again for another ticket-ttl.
+ */
+@Slf4j
+@Component
+public class WaitingRoom {
+
+    private final RequestService requestService;
+    private final int batchSize;
+    private final int maxQueueSize;
+    private final Set<Long> hotEvents = ConcurrentHashMap.newKeySet();
+    private final Map<Long, EventQueue> queues = new ConcurrentHashMap<>();
+    private final Cache<String, Ticket> tickets;
+
+    public WaitingRoom(RequestService requestService,
+                       @Value("${requests.waiting-room.hot-events:}") Set<Long> hotEvents,
+                       @Value("${requests.waiting-room.batch-size:10}") int batchSize,
+                       @Value("${requests.waiting-room.max-queue-size:10000}") int maxQueueSize,
+                       @Value("${requests.waiting-room.ticket-ttl:PT10M}") Duration ticketTtl) {
+        this.requestService = requestService;
+        this.batchSize = batchSize;
+        this.maxQueueSize = maxQueueSize;
+        this.hotEvents.addAll(hotEvents);
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterAccess(ticketTtl)
+                .build();
+    }
+
+    public boolean isHot(Long eventId) {
+        return hotEvents.contains(eventId);
+    }
+
+    public void open(Long eventId) {
+        hotEvents.add(eventId);
+        log.info("Для события с id={} включена очередь заявок", eventId);
+    }
+
+    /**
+     * Tickets already queued for the event are still admitted in order.
+     */
+    public void close(Long eventId) {
+        hotEvents.remove(eventId);
+        log.info("Для события с id={} выключена очередь заявок", eventId);
+    }
+
+    public QueuedRequestDto enqueue(Long userId, Long eventId) {
+        while (true) {
+            EventQueue queue = queues.computeIfAbsent(eventId, id -> new EventQueue());
+            Ticket ticket;
+            synchronized (queue) {
+                if (queue.removed) {
+                    continue;
+                }
+                if (queue.tickets.size() >= maxQueueSize) {
+                    throw new DataIntegrityViolationException("The waiting room of the event is full.");
+                }
+                if (!queue.requesters.add(userId)) {
+                    throw new DataIntegrityViolationException("Cannot add a repeat request.");
+                }
+                ticket = new Ticket(UUID.randomUUID().toString(), userId, eventId, ++queue.enqueued);
+                queue.tickets.add(ticket);
+            }
+            tickets.put(ticket.id, ticket);
+            return toDto(ticket, queue);
+        }
+    }
+
+    public QueuedRequestDto getTicket(Long userId, String ticketId) {
+        Ticket ticket = tickets.getIfPresent(ticketId);
+        if (ticket == null || !ticket.userId.equals(userId)) {
+            throw new NotFoundException("Ticket with id=" + ticketId + " was not found");
+        }
+        return toDto(ticket, queues.get(ticket.eventId));
+    }
+
+    @Scheduled(fixedDelayString = "${requests.waiting-room.drain-interval-ms:100}")
+    public void drain() {
+        Iterator<Map.Entry<Long, EventQueue>> iterator = queues.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, EventQueue> entry = iterator.next();
+            EventQueue queue = entry.getValue();
+            for (int i = 0; i < batchSize; i++) {
+                Ticket ticket = queue.tickets.peek();
+                if (ticket == null) {
+                    break;
+                }
+                admit(ticket);
+                synchronized (queue) {
+                    queue.tickets.poll();
+                    queue.requesters.remove(ticket.userId);
+                    queue.taken++;
+                }
+                tickets.put(ticket.id, ticket);
+            }
+            synchronized (queue) {
+                if (queue.tickets.isEmpty() && !isHot(entry.getKey())) {
+                    queue.removed = true;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private void admit(Ticket ticket) {
+        try {
+            ticket.request = requestService.createRequest(ticket.userId, ticket.eventId);
+            ticket.state = QueueState.ADMITTED;
+        } catch (NotFoundException | DataIntegrityViolationException | BadRequestException e) {
+            ticket.error = e.getMessage();
+            ticket.state = QueueState.REJECTED;
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обработать заявку из очереди события с id={}: {}", ticket.eventId, e.getMessage());
+            ticket.error = "The request could not be processed.";
+            ticket.state = QueueState.REJECTED;
+        }
+    }
+
+    private QueuedRequestDto toDto(Ticket ticket, EventQueue queue) {
+        QueueState state = ticket.state;
+        Long position = state == QueueState.QUEUED && queue != null ? Math.max(ticket.seq - queue.taken, 1) : null;
+        return new QueuedRequestDto(ticket.id, ticket.eventId, ticket.userId, state, position, ticket.request,
+                ticket.error);
+    }
+
+    private static class EventQueue {
+        private final Queue<Ticket> tickets = new ConcurrentLinkedQueue<>();
+        private final Set<Long> requesters = new HashSet<>();
+        private long enqueued;
+        private volatile long taken;
+        private boolean removed;
+    }
+
+    private static class Ticket {
+        private final String id;
+        private final Long userId;
+        private final Long eventId;
+        private final long seq;
+        private volatile QueueState state = QueueState.QUEUED;
+        private volatile ParticipationRequestDto request;
+        private volatile String error;
+
+        private Ticket(String id, Long userId, Long eventId, long seq) {
+            this.id = id;
+            this.userId = userId;
+            this.eventId = eventId;
+            this.seq = seq;
+        }
+    }
+}
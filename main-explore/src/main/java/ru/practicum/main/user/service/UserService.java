@@ -1,12 +1,13 @@
 package ru.practicum.main.user.service;
 
+import ru.practicum.main.pagination.CursorPage;
 import ru.practicum.main.user.dto.NewUserRequest;
 import ru.practicum.main.user.dto.UserDto;
 
 import java.util.List;
 
 public interface UserService {
-    List<UserDto> getUsers(List<Long> ids, Integer from, Integer size);
+    CursorPage<UserDto> getUsers(List<Long> ids, Integer from, Integer size, String cursor);
 
     UserDto createUser(NewUserRequest newUserRequest);
 
@@ -1,10 +1,15 @@
 package ru.practicum.main.user.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.main.exception.NotFoundException;
+import ru.practicum.main.pagination.CursorPage;
+import ru.practicum.main.pagination.KeysetSpecifications;
+import ru.practicum.main.pagination.OffsetPageRequest;
+import ru.practicum.main.pagination.PageCursor;
 import ru.practicum.main.user.dto.NewUserRequest;
 import ru.practicum.main.user.dto.UserDto;
 import ru.practicum.main.user.mapper.UserMapper;
@@ -18,15 +23,28 @@ import java.util.List;
 @Transactional(readOnly = true)
 public class UserServiceImpl implements UserService {
 
+    private static final String CURSOR_SORT = "id";
+
     private final UserRepository userRepository;
 
     @Override
-    public List<UserDto> getUsers(List<Long> ids, Integer from, Integer size) {
-        if (ids != null && !ids.isEmpty()) {
-            return UserMapper.toUserDto(userRepository.findAllById(ids));
+    public CursorPage<UserDto> getUsers(List<Long> ids, Integer from, Integer size, String cursor) {
+        PageCursor after = PageCursor.decode(cursor, CURSOR_SORT);
+        boolean byIds = ids != null && !ids.isEmpty();
+        if (after == null && byIds) {
+            return CursorPage.last(UserMapper.toUserDto(userRepository.findAllById(ids)));
+        }
+        List<User> users;
+        if (after == null) {
+            users = userRepository.findAll(OffsetPageRequest.of(from, size, Sort.by("id"))).getContent();
         } else {
-            return UserMapper.toUserDto(userRepository.findAll(PageRequest.of(from / size, size)));
+            Specification<User> spec = KeysetSpecifications.afterId(after.id());
+            if (byIds) {
+                spec = spec.and((root, query, criteriaBuilder) -> root.get("id").in(ids));
+            }
+            users = userRepository.findBy(spec, query -> query.sortBy(Sort.by("id")).limit(size).all());
         }
+        return CursorPage.of(users, size, user -> PageCursor.of(CURSOR_SORT, null, user.getId()), UserMapper::toUserDto);
     }
 
     @Override
@@ -59,3 +59,21 @@ CREATE TABLE IF NOT EXISTS compilation_events (
     CONSTRAINT fk_comp_events_to_compilations FOREIGN KEY(compilation_id) REFERENCES compilations(id),
     CONSTRAINT fk_comp_events_to_events FOREIGN KEY(event_id) REFERENCES events(id)
 );
+
+ALTER TABLE events ADD COLUMN IF NOT EXISTS confirmed_requests BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_events_available ON events (event_date)
+    WHERE participant_limit = 0 OR participant_limit > confirmed_requests;
+
+ALTER TABLE events ADD COLUMN IF NOT EXISTS views BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_events_views ON events (views DESC, id);
+
+CREATE INDEX IF NOT EXISTS idx_events_event_date ON events (event_date, id);
+
+CREATE INDEX IF NOT EXISTS idx_requests_pending ON requests (event_id) WHERE status = 'PENDING';
+
+CREATE TABLE IF NOT EXISTS event_views_sync (
+    id INT PRIMARY KEY CHECK (id = 1),
+    synced_until TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
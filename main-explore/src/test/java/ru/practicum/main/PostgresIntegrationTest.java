@@ -0,0 +1,55 @@
+package ru.practicum.main;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Runs the application against a real PostgreSQL, shared by all test classes. Guarded updates, partial indexes
+ * and UPDATE ... RETURNING behave differently on other databases.
+ */
+@SpringBootTest
+public abstract class PostgresIntegrationTest {
+
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16.1");
+
+    static {
+        POSTGRES.start();
+    }
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    protected long insertUser() {
+        String name = UUID.randomUUID().toString();
+        return jdbcTemplate.queryForObject("INSERT INTO users (name, email) VALUES (?, ?) RETURNING id",
+                Long.class, name, name + "@example.com");
+    }
+
+    protected long insertCategory() {
+        return jdbcTemplate.queryForObject("INSERT INTO categories (name) VALUES (?) RETURNING id",
+                Long.class, UUID.randomUUID().toString().substring(0, 30));
+    }
+
+    protected long insertPublishedEvent(long initiatorId, long categoryId, int participantLimit,
+                                        boolean requestModeration) {
+        long locationId = jdbcTemplate.queryForObject("INSERT INTO locations (lat, lon) VALUES (55.75, 37.62) RETURNING id",
+                Long.class);
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.queryForObject("INSERT INTO events (title, annotation, category_id, description, " +
+                        "event_date, location_id, paid, participant_limit, request_moderation, initiator_id, state, " +
+                        "created_on, published_on) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, false, ?, ?, ?, 'PUBLISHED', ?, ?) RETURNING id",
+                Long.class,
+                "Test event", "Annotation of the test event", categoryId, "Description of the test event",
+                Timestamp.valueOf(now.plusDays(7)), locationId, participantLimit, requestModeration, initiatorId,
+                Timestamp.valueOf(now), Timestamp.valueOf(now));
+    }
+}
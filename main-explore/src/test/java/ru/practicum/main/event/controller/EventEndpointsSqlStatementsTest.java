@@ -0,0 +1,84 @@
+package ru.practicum.main.event.controller;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.practicum.main.PostgresIntegrationTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the number of SQL statements event listings issue for a page of events, as counted by
+ * {@link ru.practicum.main.monitoring.SqlStatementInterceptor}. Each endpoint is called once to warm the category
+ * snapshot, then measured.
+ */
+@AutoConfigureMockMvc
+class EventEndpointsSqlStatementsTest extends PostgresIntegrationTest {
+
+    // Fills more than one page, so a Page-returning query would have to count the rest instead of deriving the total.
+    private static final int EVENTS = 15;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private long initiatorId;
+    private long categoryId;
+
+    @BeforeEach
+    void createEvents() {
+        initiatorId = insertUser();
+        categoryId = insertCategory();
+        for (int i = 0; i < EVENTS; i++) {
+            insertPublishedEvent(initiatorId, categoryId, 0, false);
+        }
+    }
+
+    @Test
+    void publicEventsUseOneStatement() throws Exception {
+        assertThat(statements("/events", get("/events").param("categories", String.valueOf(categoryId))
+                .param("size", String.valueOf(PAGE_SIZE))))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void adminEventsUseOneStatement() throws Exception {
+        assertThat(statements("/admin/events", get("/admin/events").param("users", String.valueOf(initiatorId))
+                .param("size", String.valueOf(PAGE_SIZE))))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void initiatorEventsUseTwoStatements() throws Exception {
+        assertThat(statements("/users/{userId}/events", get("/users/{userId}/events", initiatorId)
+                .param("size", String.valueOf(PAGE_SIZE))))
+                .isEqualTo(2);
+    }
+
+    private long statements(String uri, RequestBuilder request) throws Exception {
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(PAGE_SIZE));
+        DistributionSummary summary = meterRegistry.get("http.server.requests.sql")
+                .tags("method", "GET", "uri", uri)
+                .summary();
+        long count = summary.count();
+        double total = summary.totalAmount();
+
+        mockMvc.perform(request).andExpect(status().isOk());
+
+        assertThat(summary.count()).isEqualTo(count + 1);
+        return Math.round(summary.totalAmount() - total);
+    }
+}
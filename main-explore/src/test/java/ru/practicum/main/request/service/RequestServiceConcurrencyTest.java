@@ -0,0 +1,110 @@
+package ru.practicum.main.request.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.practicum.main.PostgresIntegrationTest;
+import ru.practicum.main.exception.DataIntegrityViolationException;
+import ru.practicum.main.request.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.main.request.dto.EventRequestStatusUpdateResult;
+import ru.practicum.main.request.dto.ParticipationRequestDto;
+import ru.practicum.main.request.dto.RequestStatusUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestServiceConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int PARTICIPANT_LIMIT = 10;
+    private static final int REQUESTERS = 100;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private RequestService requestService;
+
+    @Test
+    void concurrentRequestsNeverExceedParticipantLimit() throws Exception {
+        long initiatorId = insertUser();
+        long eventId = insertPublishedEvent(initiatorId, insertCategory(), PARTICIPANT_LIMIT, false);
+        List<Long> requesterIds = new ArrayList<>();
+        for (int i = 0; i < REQUESTERS; i++) {
+            requesterIds.add(insertUser());
+        }
+
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long requesterId : requesterIds) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        requestService.createRequest(requesterId, eventId);
+                        admitted.incrementAndGet();
+                    } catch (DataIntegrityViolationException e) {
+                        assertThat(e.getMessage()).isEqualTo("The participant limit has been reached.");
+                        refused.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(admitted.get()).isEqualTo(PARTICIPANT_LIMIT);
+        assertThat(refused.get()).isEqualTo(REQUESTERS - PARTICIPANT_LIMIT);
+        assertThat(jdbcTemplate.queryForObject("SELECT confirmed_requests FROM events WHERE id = ?",
+                Long.class, eventId)).isEqualTo(PARTICIPANT_LIMIT);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM requests WHERE event_id = ? AND status = 'CONFIRMED'",
+                Long.class, eventId)).isEqualTo(PARTICIPANT_LIMIT);
+    }
+
+    @Test
+    void confirmingLastSeatsRejectsRemainingPendingRequests() {
+        long initiatorId = insertUser();
+        long eventId = insertPublishedEvent(initiatorId, insertCategory(), 2, true);
+        List<Long> requestIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requestIds.add(requestService.createRequest(insertUser(), eventId).getId());
+        }
+        // One of the two seats is already taken
+        jdbcTemplate.update("UPDATE events SET confirmed_requests = 1 WHERE id = ?", eventId);
+
+        EventRequestStatusUpdateResult result = requestService.changeRequestStatus(initiatorId, eventId,
+                new EventRequestStatusUpdateRequest(List.of(requestIds.get(0)), RequestStatusUpdate.CONFIRMED));
+
+        assertThat(result.getConfirmedRequests()).extracting(ParticipationRequestDto::getId)
+                .containsExactly(requestIds.get(0));
+        assertThat(result.getRejectedRequests()).extracting(ParticipationRequestDto::getId)
+                .containsExactlyInAnyOrder(requestIds.get(1), requestIds.get(2));
+        assertThat(jdbcTemplate.queryForObject("SELECT confirmed_requests FROM events WHERE id = ?",
+                Long.class, eventId)).isEqualTo(2);
+    }
+
+    @Test
+    void repeatRequestIsRefused() {
+        long eventId = insertPublishedEvent(insertUser(), insertCategory(), 0, false);
+        long requesterId = insertUser();
+
+        requestService.createRequest(requesterId, eventId);
+
+        assertThatThrownBy(() -> requestService.createRequest(requesterId, eventId))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessage("Cannot add a repeat request.");
+    }
+}
@@ -0,0 +1,149 @@
+package ru.practicum.main.request.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import ru.practicum.main.exception.DataIntegrityViolationException;
+import ru.practicum.main.exception.NotFoundException;
+import ru.practicum.main.request.dto.ParticipationRequestDto;
+import ru.practicum.main.request.dto.QueueState;
+import ru.practicum.main.request.dto.QueuedRequestDto;
+import ru.practicum.main.request.dto.RequestStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class WaitingRoomTest {
+
+    private static final long EVENT_ID = 1L;
+    private static final int BATCH_SIZE = 2;
+    private static final int MAX_QUEUE_SIZE = 5;
+
+    private RequestService requestService;
+    private WaitingRoom waitingRoom;
+
+    @BeforeEach
+    void createWaitingRoom() {
+        requestService = mock(RequestService.class);
+        when(requestService.createRequest(anyLong(), anyLong())).thenAnswer(invocation -> new ParticipationRequestDto(
+                invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(0), RequestStatus.PENDING,
+                LocalDateTime.now()));
+        waitingRoom = new WaitingRoom(requestService, Set.of(EVENT_ID), BATCH_SIZE, MAX_QUEUE_SIZE, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void positionsFollowEnqueueOrder() {
+        List<QueuedRequestDto> queued = enqueue(10L, 11L, 12L);
+
+        assertThat(queued).extracting(QueuedRequestDto::getPosition).containsExactly(1L, 2L, 3L);
+        assertThat(queued).extracting(QueuedRequestDto::getState).containsOnly(QueueState.QUEUED);
+    }
+
+    @Test
+    void drainAdmitsOneBatchInFifoOrder() {
+        List<QueuedRequestDto> queued = enqueue(10L, 11L, 12L, 13L, 14L);
+
+        waitingRoom.drain();
+
+        InOrder order = inOrder(requestService);
+        order.verify(requestService).createRequest(10L, EVENT_ID);
+        order.verify(requestService).createRequest(11L, EVENT_ID);
+        verifyNoMoreInteractions(requestService);
+
+        QueuedRequestDto admitted = poll(10L, queued.get(0));
+        assertThat(admitted.getState()).isEqualTo(QueueState.ADMITTED);
+        assertThat(admitted.getPosition()).isNull();
+        assertThat(admitted.getRequest().getRequester()).isEqualTo(10L);
+        assertThat(poll(12L, queued.get(2)).getPosition()).isEqualTo(1L);
+        assertThat(poll(14L, queued.get(4)).getPosition()).isEqualTo(3L);
+    }
+
+    @Test
+    void drainEmptiesQueueOneBatchPerRun() {
+        List<QueuedRequestDto> queued = enqueue(10L, 11L, 12L, 13L, 14L);
+
+        waitingRoom.drain();
+        waitingRoom.drain();
+        assertThat(poll(14L, queued.get(4)).getPosition()).isEqualTo(1L);
+
+        waitingRoom.drain();
+        assertThat(queued).extracting(ticket -> poll(ticket.getRequester(), ticket).getState())
+                .containsOnly(QueueState.ADMITTED);
+    }
+
+    @Test
+    void rejectsRepeatRequestWhileQueued() {
+        enqueue(10L);
+
+        assertThatThrownBy(() -> waitingRoom.enqueue(10L, EVENT_ID))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        waitingRoom.drain();
+        assertThat(waitingRoom.enqueue(10L, EVENT_ID).getPosition()).isEqualTo(1L);
+    }
+
+    @Test
+    void rejectsRequestsBeyondQueueSize() {
+        enqueue(10L, 11L, 12L, 13L, 14L);
+
+        assertThatThrownBy(() -> waitingRoom.enqueue(15L, EVENT_ID))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void reportsRejectionFromRequestService() {
+        when(requestService.createRequest(10L, EVENT_ID))
+                .thenThrow(new DataIntegrityViolationException("The participant limit has been reached."));
+        QueuedRequestDto queued = enqueue(10L).get(0);
+
+        waitingRoom.drain();
+
+        QueuedRequestDto rejected = poll(10L, queued);
+        assertThat(rejected.getState()).isEqualTo(QueueState.REJECTED);
+        assertThat(rejected.getError()).isEqualTo("The participant limit has been reached.");
+    }
+
+    @Test
+    void ticketIsVisibleToItsRequesterOnly() {
+        QueuedRequestDto queued = enqueue(10L).get(0);
+
+        assertThatThrownBy(() -> waitingRoom.getTicket(11L, queued.getTicket()))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void closedEventKeepsAdmittingQueuedTickets() {
+        List<QueuedRequestDto> queued = enqueue(10L, 11L, 12L);
+        waitingRoom.close(EVENT_ID);
+
+        waitingRoom.drain();
+        waitingRoom.drain();
+
+        verify(requestService).createRequest(12L, EVENT_ID);
+        assertThat(poll(12L, queued.get(2)).getState()).isEqualTo(QueueState.ADMITTED);
+    }
+
+    private List<QueuedRequestDto> enqueue(Long... userIds) {
+        List<QueuedRequestDto> queued = new ArrayList<>();
+        for (Long userId : userIds) {
+            queued.add(waitingRoom.enqueue(userId, EVENT_ID));
+        }
+        return queued;
+    }
+
+    private QueuedRequestDto poll(Long userId, QueuedRequestDto queued) {
+        return waitingRoom.getTicket(userId, queued.getTicket());
+    }
+}
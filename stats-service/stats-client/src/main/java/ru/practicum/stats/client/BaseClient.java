@@ -1,9 +1,13 @@
 package ru.practicum.stats.client;
 
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.web.client.RestTemplate;
 
@@ -17,11 +21,29 @@ public class BaseClient {
         this.restTemplate = restTemplate;
     }
 
+    /**
+     * All calls go to the single stats server route, so maxConnections bounds both the pool and the route. Callers
+     * beyond it wait for a connection, which under virtual threads is the only limit on concurrent calls.
+     */
+    protected static ClientHttpRequestFactory pooledRequestFactory(int maxConnections) {
+        return new HttpComponentsClientHttpRequestFactory(HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .build())
+                .build());
+    }
+
     protected <T> ResponseEntity<Object> post(String path, T body) {
         HttpEntity<T> requestEntity = new HttpEntity<>(body);
         return restTemplate.exchange(path, HttpMethod.POST, requestEntity, Object.class);
     }
 
+    protected <T, R> ResponseEntity<R> post(String path, T body, ParameterizedTypeReference<R> typeReference) {
+        HttpEntity<T> requestEntity = new HttpEntity<>(body);
+        return restTemplate.exchange(path, HttpMethod.POST, requestEntity, typeReference);
+    }
+
     protected <R> ResponseEntity<R> get(String path, @Nullable Map<String, Object> parameters, ParameterizedTypeReference<R> typeReference) {
         if (parameters == null) {
             parameters = Map.of();
@@ -4,27 +4,35 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.stats.dto.HitDto;
 
+import java.util.List;
+
 @Service
 public class HitClient extends BaseClient {
 
     private static final String API_PREFIX = "/hit";
+    private static final String BATCH_API_PREFIX = "/hits/batch";
 
     @Autowired
-    public HitClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public HitClient(@Value("${stats-server.url}") String serverUrl,
+                     @Value("${stats-client.http.max-connections:50}") int maxConnections,
+                     RestTemplateBuilder builder) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
+                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
+                        .requestFactory(() -> pooledRequestFactory(maxConnections))
                         .build()
         );
     }
 
     public ResponseEntity<Object> createHit(HitDto body) {
-        return post("", body);
+        return post(API_PREFIX, body);
+    }
+
+    public ResponseEntity<Object> createHits(List<HitDto> body) {
+        return post(BATCH_API_PREFIX, body);
     }
 }
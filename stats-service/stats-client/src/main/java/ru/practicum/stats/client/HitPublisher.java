@@ -0,0 +1,210 @@
+package ru.practicum.stats.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientResponseException;
+import ru.practicum.stats.dto.HitDto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects hits in a bounded queue and sends them to the stats server in batches
+ * from a background thread, so the caller never waits for the stats server.
+ * A batch is flushed when the queue reaches {@code batch-size} or every {@code flush-interval-ms}.
+ * <p>
+ * A batch the server answered with an error is split in halves until the hits it cannot store are isolated; a hit
+ * that fails alone is dropped. A batch the server could not be reached for is retried before any new hits, after
+ * a pause that doubles from {@code retry-backoff-ms} up to {@code max-retry-backoff-ms}, and is dropped after
+ * {@code max-attempts}; a batch that timed out after the server stored it is sent twice. No flush is started
+ * while such a pause lasts.
+ */
+@Slf4j
+@Service
+public class HitPublisher implements DisposableBean {
+
+    private final HitClient hitClient;
+    private final BlockingQueue<HitDto> queue;
+    private final Queue<FailedBatch> retries = new ConcurrentLinkedQueue<>();
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Counter droppedHits;
+    private volatile long retryNotBefore;
+    private int consecutiveFailures;
+
+    public HitPublisher(HitClient hitClient,
+                        MeterRegistry meterRegistry,
+                        @Value("${stats-client.hits.queue-capacity:10000}") int queueCapacity,
+                        @Value("${stats-client.hits.batch-size:500}") int batchSize,
+                        @Value("${stats-client.hits.flush-interval-ms:1000}") long flushIntervalMs,
+                        @Value("${stats-client.hits.overflow-policy:DROP}") OverflowPolicy overflowPolicy,
+                        @Value("${stats-client.hits.max-attempts:5}") int maxAttempts,
+                        @Value("${stats-client.hits.retry-backoff-ms:1000}") long retryBackoffMs,
+                        @Value("${stats-client.hits.max-retry-backoff-ms:60000}") long maxRetryBackoffMs) {
+        this.hitClient = hitClient;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-hit-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("stats.client.hits.queue.depth", queue, Collection::size)
+                .description("Hits waiting to be sent to the stats server")
+                .register(meterRegistry);
+        this.droppedHits = Counter.builder("stats.client.hits.dropped")
+                .description("Hits that were never delivered to the stats server")
+                .register(meterRegistry);
+    }
+
+    public void publish(HitDto hit) {
+        if (queue.offer(hit)) {
+            if (queue.size() >= batchSize && !backingOff()) {
+                scheduleFlush();
+            }
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    queue.put(hit);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedHits.increment();
+                }
+            }
+            case SPILL -> spill(hit);
+            default -> droppedHits.increment();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!executor.isShutdown() && flushScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    private boolean backingOff() {
+        return System.currentTimeMillis() < retryNotBefore;
+    }
+
+    private void flush() {
+        if (backingOff()) {
+            return;
+        }
+        FailedBatch failed;
+        while ((failed = retries.poll()) != null) {
+            if (!send(failed.hits(), failed.attempts())) {
+                return;
+            }
+        }
+        List<HitDto> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            if (!send(batch, 0)) {
+                return;
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * Returns false when the stats server could not be reached; the hits not delivered are then waiting in retries.
+     */
+    private boolean send(List<HitDto> hits, int attempts) {
+        try {
+            hitClient.createHits(hits);
+            consecutiveFailures = 0;
+            return true;
+        } catch (RestClientResponseException e) {
+            consecutiveFailures = 0;
+            if (hits.size() == 1) {
+                log.warn("Сервер статистики не принял запрос {}: {}", hits.get(0), e.getMessage());
+                droppedHits.increment();
+                return true;
+            }
+            int middle = hits.size() / 2;
+            List<HitDto> rest = hits.subList(middle, hits.size());
+            if (!send(hits.subList(0, middle), attempts)) {
+                retries.add(new FailedBatch(List.copyOf(rest), attempts));
+                return false;
+            }
+            return send(rest, attempts);
+        } catch (RuntimeException e) {
+            retryLater(hits, attempts + 1, e);
+            return false;
+        }
+    }
+
+    private void retryLater(List<HitDto> hits, int attempts, RuntimeException e) {
+        consecutiveFailures++;
+        long backoff = Math.min(maxRetryBackoffMs, retryBackoffMs << Math.min(consecutiveFailures - 1, 20));
+        retryNotBefore = System.currentTimeMillis() + backoff;
+        if (attempts >= maxAttempts) {
+            log.warn("Не удалось отправить {} запросов на сервер статистики за {} попыток: {}",
+                    hits.size(), attempts, e.getMessage());
+            droppedHits.increment(hits.size());
+            return;
+        }
+        log.warn("Не удалось отправить {} запросов на сервер статистики, повтор через {} мс: {}",
+                hits.size(), backoff, e.getMessage());
+        retries.add(new FailedBatch(List.copyOf(hits), attempts));
+    }
+
+    /**
+     * Sends a hit that did not fit into the queue from the caller's thread, without retries.
+     */
+    private void spill(HitDto hit) {
+        try {
+            hitClient.createHits(List.of(hit));
+        } catch (RuntimeException e) {
+            droppedHits.increment();
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        // One last attempt regardless of the current pause
+        retryNotBefore = 0;
+        flush();
+        int undelivered = queue.size() + retries.stream().mapToInt(failed -> failed.hits().size()).sum();
+        if (undelivered > 0) {
+            log.warn("При остановке не отправлено {} запросов на сервер статистики", undelivered);
+            droppedHits.increment(undelivered);
+            queue.clear();
+            retries.clear();
+        }
+    }
+
+    private record FailedBatch(List<HitDto> hits, int attempts) {
+    }
+}
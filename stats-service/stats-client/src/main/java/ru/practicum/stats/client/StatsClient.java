@@ -5,9 +5,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.stats.dto.StatsQueryDto;
 import ru.practicum.stats.dto.ViewStatsDto;
 
 import java.time.LocalDateTime;
@@ -19,14 +19,17 @@ import java.util.Map;
 public class StatsClient extends BaseClient {
 
     private static final String API_PREFIX = "/stats";
+    private static final String QUERY_API_PREFIX = "/stats/query";
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     @Autowired
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public StatsClient(@Value("${stats-server.url}") String serverUrl,
+                       @Value("${stats-client.http.max-connections:50}") int maxConnections,
+                       RestTemplateBuilder builder) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
-                        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
+                        .requestFactory(() -> pooledRequestFactory(maxConnections))
                         .build()
         );
     }
@@ -41,4 +44,12 @@ public class StatsClient extends BaseClient {
         return get(API_PREFIX + "?start={start}&end={end}&uris={uris}&unique={unique}", param, new ParameterizedTypeReference<List<ViewStatsDto>>() {
         });
     }
+
+    /**
+     * Sends the endpoints in the request body, so the number of events does not affect the URL length.
+     */
+    public ResponseEntity<List<ViewStatsDto>> queryStats(StatsQueryDto query) {
+        return post(QUERY_API_PREFIX, query, new ParameterizedTypeReference<List<ViewStatsDto>>() {
+        });
+    }
 }
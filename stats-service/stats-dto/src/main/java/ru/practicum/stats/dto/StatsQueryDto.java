@@ -0,0 +1,42 @@
+package ru.practicum.stats.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Body of POST /stats/query. Endpoints are given as uris, as numeric ids appended to uriPrefix, or both;
+ * without either the query covers every endpoint.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsQueryDto {
+
+    @NotNull(message = "Дата начала не может быть пустой")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime start;
+
+    @NotNull(message = "Дата окончания не может быть пустой")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime end;
+
+    private List<String> uris;
+
+    private String uriPrefix;
+
+    private List<Long> ids;
+
+    private boolean unique;
+
+    private boolean exact;
+
+    private Integer limit;
+}
@@ -1,15 +1,24 @@
 package ru.practicum.server.stats.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.server.stats.service.StatsService;
 import ru.practicum.stats.dto.HitDto;
+import ru.practicum.stats.dto.StatsQueryDto;
 import ru.practicum.stats.dto.ViewStatsDto;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -19,6 +28,7 @@ import java.util.List;
 public class StatsController {
 
     private final StatsService service;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -27,14 +37,95 @@ public class StatsController {
         service.createHit(hit);
     }
 
-    @GetMapping("/stats")
+    @PostMapping("/hits/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void createHits(@RequestBody List<@Valid HitDto> hits) {
+        log.info("Сохраняем на сервере пакет из {} запросов к эндпоинтам", hits.size());
+        service.createHits(hits);
+    }
+
+    @GetMapping(value = "/stats", params = "uris")
     @ResponseStatus(HttpStatus.OK)
     public List<ViewStatsDto> getStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
                                        @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
                                        @RequestParam(required = false) List<String> uris,
-                                       @RequestParam(defaultValue = "false") boolean unique) {
+                                       @RequestParam(defaultValue = "false") boolean unique,
+                                       @RequestParam(defaultValue = "false") boolean exact,
+                                       @RequestParam(required = false) Integer limit) {
         log.info("Получаем с сервера данные по параметрам для запроса /stats");
-        return service.getStats(start, end, uris, unique);
+        return service.getStats(start, end, uris, unique, exact, limit);
+    }
+
+    @PostMapping("/stats/query")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ViewStatsDto> queryStats(@Valid @RequestBody StatsQueryDto query) {
+        log.info("Получаем с сервера данные по телу запроса /stats/query");
+        return service.queryStats(query);
     }
 
+    /**
+     * Without uris the result can cover every endpoint, so it is written while it is read: as a JSON array,
+     * or as one JSON object per line when application/x-ndjson is accepted. Estimated unique counts without a limit
+     * are written in (app, uri) order, each as soon as it is known; pass a limit or exact=true to order them by hits.
+     */
+    @GetMapping(value = "/stats", params = "!uris")
+    public ResponseEntity<StreamingResponseBody> streamStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+                                                             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+                                                             @RequestParam(defaultValue = "false") boolean unique,
+                                                             @RequestParam(defaultValue = "false") boolean exact,
+                                                             @RequestParam(required = false) Integer limit,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.info("Получаем с сервера потоком данные по всем эндпоинтам для запроса /stats");
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            if (ndjson) {
+                generator.setRootValueSeparator(null);
+            }
+            StatsWriter writer = new StatsWriter(generator, ndjson);
+            service.streamStats(start, end, unique, exact, limit, writer::write);
+            writer.finish();
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Opens the JSON array only with the first row, so a query that fails before producing anything
+     * still leaves the response uncommitted for the error handler.
+     */
+    @RequiredArgsConstructor
+    private static class StatsWriter {
+        private final JsonGenerator generator;
+        private final boolean ndjson;
+        private boolean started;
+
+        void write(ViewStatsDto stat) {
+            try {
+                start();
+                generator.writeObject(stat);
+                if (ndjson) {
+                    generator.writeRaw('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            start();
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+            generator.flush();
+        }
+
+        private void start() throws IOException {
+            if (!started && !ndjson) {
+                generator.writeStartArray();
+            }
+            started = true;
+        }
+    }
 }
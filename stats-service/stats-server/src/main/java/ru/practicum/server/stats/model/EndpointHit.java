@@ -1,35 +0,0 @@
-package ru.practicum.stats.server.model;
-
-import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-import java.time.LocalDateTime;
-
-@Data
-@Builder
-@AllArgsConstructor
-@NoArgsConstructor
-@Entity
-@Table(name = "hits")
-public class EndpointHit {
-
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
-
-    @Column(nullable = false)
-    private String app;
-
-    @Column(nullable = false)
-    private String uri;
-
-    @Column(nullable = false)
-    private String ip;
-
-    @Column(nullable = false)
-    private LocalDateTime timestamp;
-
-}
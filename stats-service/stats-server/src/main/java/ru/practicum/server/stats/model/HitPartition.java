@@ -0,0 +1,9 @@
+package ru.practicum.server.stats.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A partition of the hits table; upperBound is exclusive and null for the default partition.
+ */
+public record HitPartition(String name, LocalDateTime upperBound) {
+}
@@ -0,0 +1,7 @@
+package ru.practicum.server.stats.model;
+
+/**
+ * Progress of counting hits that existed before rollups: ids up to doneToId are counted, ids up to upToId have to be.
+ */
+public record RollupBackfill(long doneToId, long upToId) {
+}
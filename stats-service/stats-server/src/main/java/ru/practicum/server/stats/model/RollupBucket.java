@@ -0,0 +1,18 @@
+package ru.practicum.server.stats.model;
+
+import ru.practicum.stats.dto.HitDto;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+public record RollupBucket(RollupGranularity granularity, String app, String uri, LocalDateTime start) {
+
+    public static final Comparator<RollupBucket> ORDER = Comparator.comparing(RollupBucket::granularity)
+            .thenComparing(RollupBucket::app)
+            .thenComparing(RollupBucket::uri)
+            .thenComparing(RollupBucket::start);
+
+    public static RollupBucket of(RollupGranularity granularity, HitDto hit) {
+        return new RollupBucket(granularity, hit.getApp(), hit.getUri(), granularity.floor(hit.getTimestamp()));
+    }
+}
@@ -0,0 +1,9 @@
+package ru.practicum.server.stats.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A slice of a queried range read from one rollup tier, or from the raw hits table when granularity is null.
+ */
+public record RollupRangePart(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, boolean toInclusive) {
+}
@@ -0,0 +1,4 @@
+package ru.practicum.server.stats.model;
+
+public record RollupSketch(RollupBucket bucket, long hits, byte[] sketch) {
+}
@@ -2,17 +2,40 @@ package ru.practicum.server.stats.model.mapper;
 
 import lombok.experimental.UtilityClass;
 import ru.practicum.stats.dto.HitDto;
-import ru.practicum.stats.server.model.EndpointHit;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
 
 @UtilityClass
 public class HitMapper {
 
-    public static EndpointHit toHit(HitDto hitDto) {
-        return EndpointHit.builder()
+    private static final Pattern IPV4 = Pattern.compile(
+            "^((25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)$");
+    private static final Pattern IPV6 = Pattern.compile("^[0-9A-Fa-f:][0-9A-Fa-f:.]*$");
+
+    public static HitDto withCanonicalIp(HitDto hitDto) {
+        return HitDto.builder()
                 .app(hitDto.getApp())
                 .uri(hitDto.getUri())
-                .ip(hitDto.getIp())
+                .ip(canonicalIp(hitDto.getIp()))
                 .timestamp(hitDto.getTimestamp())
                 .build();
     }
+
+    /**
+     * Returns the canonical text form of an IPv4 or IPv6 literal, so that the same address always
+     * hashes the same way no matter how it was written. Host names are rejected before any DNS lookup.
+     */
+    public static String canonicalIp(String ip) {
+        boolean literal = ip != null && (IPV4.matcher(ip).matches() || ip.indexOf(':') >= 0 && IPV6.matcher(ip).matches());
+        if (!literal) {
+            throw new IllegalArgumentException("Некорректный IP-адрес: " + ip);
+        }
+        try {
+            return InetAddress.getByName(ip).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Некорректный IP-адрес: " + ip);
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package ru.practicum.server.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class HitDictionaryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public Map<String, Integer> findOrCreateAppIds(List<String> apps) {
+        return findOrCreate("hit_apps", "app", apps);
+    }
+
+    public Map<String, Integer> findOrCreateUriIds(List<String> uris) {
+        return findOrCreate("hit_uris", "uri", uris);
+    }
+
+    private Map<String, Integer> findOrCreate(String table, String column, List<String> values) {
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (" + column + ") VALUES (?) ON CONFLICT (" + column + ") DO NOTHING",
+                values, values.size(), (ps, value) -> ps.setString(1, value));
+        Map<String, Integer> ids = new HashMap<>();
+        namedParameterJdbcTemplate.query("SELECT id, " + column + " FROM " + table + " WHERE " + column + " IN (:values)",
+                Map.of("values", values),
+                (RowCallbackHandler) rs -> ids.put(rs.getString(column), rs.getInt("id")));
+        return ids;
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.server.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.server.stats.model.mapper.HitMapper;
+import ru.practicum.stats.dto.HitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class HitJdbcRepository {
+
+    private static final String INSERT_HIT = "INSERT INTO hits (app_id, uri_id, ip, timestamp) VALUES (?, ?, CAST(? AS inet), ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Value("${stats.hits.jdbc-batch-size:1000}")
+    private int batchSize;
+
+    public void saveAll(List<HitDto> hits, Map<String, Integer> appIds, Map<String, Integer> uriIds) {
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, batchSize, (ps, hit) -> {
+            ps.setInt(1, appIds.get(hit.getApp()));
+            ps.setInt(2, uriIds.get(hit.getUri()));
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+    }
+
+    public List<ViewStatsDto> countHits(LocalDateTime from, LocalDateTime to, boolean toInclusive, List<String> uris) {
+        return countByEndpoint("COUNT(*)", from, to, toInclusive, uris, null);
+    }
+
+    public List<ViewStatsDto> countUniqueIps(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit) {
+        return countByEndpoint("COUNT(DISTINCT ip)", start, end, true, uris, limit);
+    }
+
+    public List<HitDto> findHits(LocalDateTime from, LocalDateTime to, boolean toInclusive, List<String> uris) {
+        MapSqlParameterSource params = rangeParams(from, to);
+        String sql = "SELECT a.app, u.uri, host(h.ip) AS ip, h.timestamp FROM hits h " +
+                "JOIN hit_apps a ON a.id = h.app_id " +
+                "JOIN hit_uris u ON u.id = h.uri_id " +
+                "WHERE h.ip IS NOT NULL AND " + rangeCondition("h.timestamp", toInclusive) + uriCondition("h.uri_id", uris, params);
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) -> new HitDto(
+                rs.getString("app"),
+                rs.getString("uri"),
+                HitMapper.canonicalIp(rs.getString("ip")),
+                rs.getTimestamp("timestamp").toLocalDateTime()
+        ));
+    }
+
+    /**
+     * Groups on the integer dictionary ids and resolves names only for the aggregated rows.
+     */
+    private List<ViewStatsDto> countByEndpoint(String aggregate, LocalDateTime from, LocalDateTime to, boolean toInclusive,
+                                               List<String> uris, Integer limit) {
+        MapSqlParameterSource params = rangeParams(from, to);
+        String sql = "SELECT a.app, u.uri, c.hits FROM (" +
+                "SELECT app_id, uri_id, " + aggregate + " AS hits FROM hits " +
+                "WHERE " + rangeCondition("timestamp", toInclusive) + uriCondition("uri_id", uris, params) + " " +
+                "GROUP BY app_id, uri_id) c " +
+                "JOIN hit_apps a ON a.id = c.app_id " +
+                "JOIN hit_uris u ON u.id = c.uri_id " +
+                "ORDER BY c.hits DESC";
+        if (limit != null) {
+            sql += " LIMIT :limit";
+            params.addValue("limit", limit);
+        }
+        return namedParameterJdbcTemplate.query(sql, params,
+                (rs, rowNum) -> new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+    }
+
+    private MapSqlParameterSource rangeParams(LocalDateTime from, LocalDateTime to) {
+        return new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+    }
+
+    private String rangeCondition(String column, boolean toInclusive) {
+        return column + " >= :from AND " + column + (toInclusive ? " <= " : " < ") + ":to";
+    }
+
+    /**
+     * Binds the uris as one text[] parameter, so the statement does not grow with the number of uris.
+     */
+    private String uriCondition(String column, List<String> uris, MapSqlParameterSource params) {
+        if (uris == null) {
+            return "";
+        }
+        params.addValue("uris", uris.toArray(new String[0]));
+        return " AND " + column + " IN (SELECT id FROM hit_uris WHERE uri = ANY(:uris))";
+    }
+}
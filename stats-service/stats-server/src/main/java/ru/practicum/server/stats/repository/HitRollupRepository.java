@@ -0,0 +1,162 @@
+package ru.practicum.server.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.server.stats.model.RollupBackfill;
+import ru.practicum.server.stats.model.RollupBucket;
+import ru.practicum.server.stats.model.RollupGranularity;
+import ru.practicum.server.stats.model.RollupSketch;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class HitRollupRepository {
+
+    private static final String UPSERT_COUNT = "INSERT INTO hit_rollups (granularity, app, uri, bucket_start, hits) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (granularity, app, uri, bucket_start) DO UPDATE SET hits = hit_rollups.hits + EXCLUDED.hits";
+
+    private static final String UPDATE_SKETCH = "UPDATE hit_rollups SET ip_sketch = ? " +
+            "WHERE granularity = ? AND app = ? AND uri = ? AND bucket_start = ?";
+
+    private static final String LOCK_BUCKETS_WITHOUT_SKETCH = "SELECT granularity, app, uri, bucket_start FROM hit_rollups " +
+            "WHERE ip_sketch IS NULL " +
+            "ORDER BY granularity, app, uri, bucket_start " +
+            "LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String BACKFILL_ROLLUPS = "INSERT INTO hit_rollups (granularity, app, uri, bucket_start, hits) " +
+            "SELECT ?, a.app, u.uri, r.bucket_start, r.hits FROM (" +
+            "SELECT app_id, uri_id, date_trunc(?, timestamp) AS bucket_start, COUNT(*) AS hits FROM hits " +
+            "WHERE id > ? AND id <= ? " +
+            "GROUP BY app_id, uri_id, bucket_start) r " +
+            "JOIN hit_apps a ON a.id = r.app_id " +
+            "JOIN hit_uris u ON u.id = r.uri_id " +
+            "ORDER BY a.app, u.uri, r.bucket_start " +
+            "ON CONFLICT (granularity, app, uri, bucket_start) DO UPDATE " +
+            "SET hits = hit_rollups.hits + EXCLUDED.hits, ip_sketch = NULL";
+
+    private static final String PLAN_BACKFILL = "INSERT INTO hit_rollup_backfill (done_to_id, up_to_id) " +
+            "SELECT MIN(id) - 1, MAX(id) FROM hits " +
+            "HAVING MAX(id) IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM hit_rollups) " +
+            "AND NOT EXISTS (SELECT 1 FROM hit_rollup_backfill)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Callers pass a sorted map so that concurrent ingest transactions lock rollup rows in the same order.
+     */
+    public void upsertCounts(Map<RollupBucket, Long> increments) {
+        jdbcTemplate.batchUpdate(UPSERT_COUNT, new ArrayList<>(increments.entrySet()), increments.size(), (ps, increment) -> {
+            RollupBucket bucket = increment.getKey();
+            ps.setString(1, bucket.granularity().name());
+            ps.setString(2, bucket.app());
+            ps.setString(3, bucket.uri());
+            ps.setTimestamp(4, Timestamp.valueOf(bucket.start()));
+            ps.setLong(5, increment.getValue());
+        });
+    }
+
+    /**
+     * Fills an empty rollup tier from the raw hits table; a tier that already has rows is left untouched.
+     */
+    /**
+     * Records the id range to count when hits exist but no rollups do, e.g. right after upgrading.
+     * Must run before ingest starts, so that every later hit has a larger id and is counted by ingest itself.
+     */
+    public boolean planBackfill() {
+        return jdbcTemplate.update(PLAN_BACKFILL) > 0;
+    }
+
+    public Optional<RollupBackfill> findBackfill() {
+        return jdbcTemplate.query("SELECT done_to_id, up_to_id FROM hit_rollup_backfill",
+                (rs, rowNum) -> new RollupBackfill(rs.getLong("done_to_id"), rs.getLong("up_to_id"))).stream().findFirst();
+    }
+
+    /**
+     * Adds hits with ids in (fromId, toId] to the rollups. Touched rows lose their sketch, which the sketch backfill rebuilds.
+     */
+    public void backfillCounts(RollupGranularity granularity, long fromId, long toId) {
+        jdbcTemplate.update(BACKFILL_ROLLUPS, granularity.name(), granularity.name().toLowerCase(), fromId, toId);
+    }
+
+    public void advanceBackfill(long doneToId) {
+        jdbcTemplate.update("UPDATE hit_rollup_backfill SET done_to_id = ?", doneToId);
+    }
+
+    public void finishBackfill() {
+        jdbcTemplate.update("DELETE FROM hit_rollup_backfill");
+    }
+
+    public void updateSketches(Map<RollupBucket, byte[]> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SKETCH, new ArrayList<>(sketches.entrySet()), sketches.size(), (ps, sketch) -> {
+            RollupBucket bucket = sketch.getKey();
+            ps.setBytes(1, sketch.getValue());
+            ps.setString(2, bucket.granularity().name());
+            ps.setString(3, bucket.app());
+            ps.setString(4, bucket.uri());
+            ps.setTimestamp(5, Timestamp.valueOf(bucket.start()));
+        });
+    }
+
+    public List<ViewStatsDto> sumHits(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, List<String> uris) {
+        MapSqlParameterSource params = rangeParams(granularity, from, to);
+        String sql = "SELECT app, uri, SUM(hits) AS hits FROM hit_rollups " +
+                "WHERE granularity = :granularity AND bucket_start >= :from AND bucket_start < :to ";
+        if (uris != null) {
+            sql += "AND uri = ANY(:uris) ";
+            params.addValue("uris", uris.toArray(new String[0]));
+        }
+        sql += "GROUP BY app, uri";
+        return namedParameterJdbcTemplate.query(sql, params,
+                (rs, rowNum) -> new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+    }
+
+    public List<RollupSketch> findSketches(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, List<String> uris) {
+        MapSqlParameterSource params = rangeParams(granularity, from, to);
+        String sql = "SELECT granularity, app, uri, bucket_start, hits, ip_sketch FROM hit_rollups " +
+                "WHERE granularity = :granularity AND bucket_start >= :from AND bucket_start < :to";
+        if (uris != null) {
+            sql += " AND uri = ANY(:uris)";
+            params.addValue("uris", uris.toArray(new String[0]));
+        }
+        return namedParameterJdbcTemplate.query(sql, params,
+                (rs, rowNum) -> new RollupSketch(toBucket(rs), rs.getLong("hits"), rs.getBytes("ip_sketch")));
+    }
+
+    public List<RollupBucket> lockBucketsWithoutSketch(int limit) {
+        return jdbcTemplate.query(LOCK_BUCKETS_WITHOUT_SKETCH, (rs, rowNum) -> toBucket(rs), limit);
+    }
+
+    private MapSqlParameterSource rangeParams(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        return new MapSqlParameterSource()
+                .addValue("granularity", granularity.name())
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+    }
+
+    private RollupBucket toBucket(ResultSet rs) throws SQLException {
+        return new RollupBucket(
+                RollupGranularity.valueOf(rs.getString("granularity")),
+                rs.getString("app"),
+                rs.getString("uri"),
+                rs.getTimestamp("bucket_start").toLocalDateTime()
+        );
+    }
+}
@@ -0,0 +1,161 @@
+package ru.practicum.server.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.server.stats.model.HitPartition;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Repository
+@RequiredArgsConstructor
+public class HitStorageRepository {
+
+    private static final DateTimeFormatter BOUND_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+
+    private static final String CREATE_PARTITIONED_HITS = "CREATE TABLE hits (" +
+            "id BIGINT NOT NULL DEFAULT nextval('hits_id_seq'), " +
+            "app_id INTEGER NOT NULL, " +
+            "uri_id INTEGER NOT NULL, " +
+            "ip INET, " +
+            "timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL, " +
+            "CONSTRAINT pk_hits PRIMARY KEY (id, timestamp)" +
+            ") PARTITION BY RANGE (timestamp)";
+
+    private static final String FIND_PARTITIONS = "SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound " +
+            "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'hits'::regclass";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean hasTextColumns() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = 'hits' AND column_name = 'app')", Boolean.class));
+    }
+
+    /**
+     * First step of moving app and uri of existing hits into the dictionary tables and ip to inet: fills the
+     * dictionaries and adds the new columns next to the old ones. Safe to repeat after an interrupted run.
+     */
+    public void prepareTextColumnsCompaction() {
+        jdbcTemplate.execute("INSERT INTO hit_apps (app) SELECT DISTINCT app FROM hits ON CONFLICT (app) DO NOTHING");
+        jdbcTemplate.execute("INSERT INTO hit_uris (uri) SELECT DISTINCT uri FROM hits ON CONFLICT (uri) DO NOTHING");
+        jdbcTemplate.execute("ALTER TABLE hits ADD COLUMN IF NOT EXISTS app_id INTEGER, ADD COLUMN IF NOT EXISTS uri_id INTEGER, " +
+                "ADD COLUMN IF NOT EXISTS ip_address INET");
+    }
+
+    public Long findFirstUncompactedId() {
+        return jdbcTemplate.queryForObject("SELECT MIN(id) FROM hits WHERE app_id IS NULL", Long.class);
+    }
+
+    /**
+     * Fills the new columns for hits with ids in [fromId, toId]. Addresses that are not valid inet input become NULL:
+     * they still count as hits but not as unique visitors.
+     */
+    public void compactTextColumns(long fromId, long toId) {
+        jdbcTemplate.update("UPDATE hits h SET app_id = a.id, uri_id = u.id, " +
+                "ip_address = CASE WHEN pg_input_is_valid(h.ip, 'inet') THEN h.ip::inet END " +
+                "FROM hit_apps a, hit_uris u " +
+                "WHERE a.app = h.app AND u.uri = h.uri AND h.id >= ? AND h.id <= ?", fromId, toId);
+    }
+
+    public void finishTextColumnsCompaction() {
+        jdbcTemplate.execute("ALTER TABLE hits ALTER COLUMN app_id SET NOT NULL, ALTER COLUMN uri_id SET NOT NULL");
+        jdbcTemplate.execute("ALTER TABLE hits DROP COLUMN app, DROP COLUMN uri, DROP COLUMN ip");
+        jdbcTemplate.execute("ALTER TABLE hits RENAME COLUMN ip_address TO ip");
+    }
+
+    public void createIndexes() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_hits_timestamp ON hits (timestamp)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_hits_uri_timestamp ON hits (uri_id, timestamp)");
+    }
+
+    public boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT relkind = 'p' FROM pg_class WHERE oid = 'hits'::regclass", Boolean.class));
+    }
+
+    /**
+     * Replaces a plain hits table with a partitioned one and attaches the old table as the partition
+     * that holds everything before {@code legacyUpperBound}.
+     */
+    public void convertToPartitioned(LocalDateTime legacyUpperBound) {
+        Long nextId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM hits", Long.class);
+        jdbcTemplate.execute("ALTER TABLE hits RENAME TO hits_legacy");
+        jdbcTemplate.execute("ALTER TABLE hits_legacy RENAME CONSTRAINT pk_hits TO pk_hits_legacy");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_hits_timestamp RENAME TO idx_hits_legacy_timestamp");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_hits_uri_timestamp RENAME TO idx_hits_legacy_uri_timestamp");
+        jdbcTemplate.execute("ALTER TABLE hits_legacy ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        jdbcTemplate.execute("DROP SEQUENCE IF EXISTS hits_id_seq");
+        jdbcTemplate.execute("CREATE SEQUENCE hits_id_seq START WITH " + nextId);
+        jdbcTemplate.execute(CREATE_PARTITIONED_HITS);
+        jdbcTemplate.execute("ALTER TABLE hits ATTACH PARTITION hits_legacy FOR VALUES FROM (MINVALUE) TO ('"
+                + legacyUpperBound.format(BOUND_FORMATTER) + "')");
+    }
+
+    public Long findMaxId() {
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM hits", Long.class);
+    }
+
+    public LocalDateTime findMaxTimestamp() {
+        Timestamp max = jdbcTemplate.queryForObject("SELECT MAX(timestamp) FROM hits", Timestamp.class);
+        return max == null ? null : max.toLocalDateTime();
+    }
+
+    public List<HitPartition> findPartitions() {
+        return jdbcTemplate.query(FIND_PARTITIONS, (rs, rowNum) -> {
+            Matcher matcher = UPPER_BOUND.matcher(rs.getString("bound"));
+            LocalDateTime upperBound = matcher.find() ? LocalDateTime.parse(matcher.group(1), BOUND_FORMATTER) : null;
+            return new HitPartition(rs.getString("name"), upperBound);
+        });
+    }
+
+    public void createDefaultPartition() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT");
+    }
+
+    public void createPartition(String name, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS \"" + name + "\" PARTITION OF hits FOR VALUES FROM ('"
+                + from.format(BOUND_FORMATTER) + "') TO ('" + to.format(BOUND_FORMATTER) + "')");
+    }
+
+    public boolean defaultPartitionHasRows(LocalDateTime from, LocalDateTime to) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM hits_default " +
+                "WHERE timestamp >= ? AND timestamp < ?)", Boolean.class, Timestamp.valueOf(from), Timestamp.valueOf(to)));
+    }
+
+    /**
+     * Creates a partition for a range that hits_default already holds rows of. Postgres refuses to create it while
+     * the default partition has such rows, so the default partition is detached, the rows are moved into the new
+     * partition and the default partition is attached again. Has to run in one transaction.
+     */
+    public int createPartitionFromDefault(String name, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.execute("ALTER TABLE hits DETACH PARTITION hits_default");
+        createPartition(name, from, to);
+        int moved = jdbcTemplate.update("INSERT INTO \"" + name + "\" (id, app_id, uri_id, ip, timestamp) " +
+                "SELECT id, app_id, uri_id, ip, timestamp FROM hits_default WHERE timestamp >= ? AND timestamp < ?",
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+        jdbcTemplate.update("DELETE FROM hits_default WHERE timestamp >= ? AND timestamp < ?",
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+        jdbcTemplate.execute("ALTER TABLE hits ATTACH PARTITION hits_default DEFAULT");
+        return moved;
+    }
+
+    public void detachPartition(String name) {
+        jdbcTemplate.execute("ALTER TABLE hits DETACH PARTITION \"" + name + "\"");
+    }
+
+    public void dropTable(String name) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS \"" + name + "\"");
+    }
+
+    public int deleteFromDefaultPartitionBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM hits_default WHERE timestamp < ?", Timestamp.valueOf(cutoff));
+    }
+}
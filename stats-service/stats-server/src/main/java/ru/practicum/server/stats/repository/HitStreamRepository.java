@@ -0,0 +1,130 @@
+package ru.practicum.server.stats.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.server.stats.model.RollupRangePart;
+import ru.practicum.server.stats.model.mapper.HitMapper;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stats queries that hand rows to the caller one by one instead of building a list.
+ * PostgreSQL only reads through a cursor with a fetch size inside a transaction, so callers must open one.
+ */
+@Repository
+public class HitStreamRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public HitStreamRepository(DataSource dataSource, @Value("${stats.stream.fetch-size:1000}") int fetchSize) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Sums the hits of every part in the database and streams endpoints ordered by hits. Null uris stand for all
+     * endpoints.
+     */
+    public void streamHits(List<RollupRangePart> parts, List<String> uris, Integer limit, Consumer<ViewStatsDto> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String uriCondition = "";
+        if (uris != null) {
+            params.addValue("uris", uris.toArray(new String[0]));
+            uriCondition = " AND uri = ANY(:uris)";
+        }
+        List<String> selects = new ArrayList<>();
+        for (int i = 0; i < parts.size(); i++) {
+            RollupRangePart part = parts.get(i);
+            if (part.granularity() == null) {
+                String uriIdCondition = uris == null ? "" : " AND uri_id IN (SELECT id FROM hit_uris WHERE uri = ANY(:uris))";
+                selects.add("SELECT a.app, u.uri, c.hits FROM (" +
+                        "SELECT app_id, uri_id, COUNT(*) AS hits FROM hits " +
+                        "WHERE " + rangeCondition("timestamp", part, i, params) + uriIdCondition + " " +
+                        "GROUP BY app_id, uri_id) c " +
+                        "JOIN hit_apps a ON a.id = c.app_id " +
+                        "JOIN hit_uris u ON u.id = c.uri_id");
+            } else {
+                selects.add("SELECT app, uri, hits FROM hit_rollups " +
+                        "WHERE granularity = :granularity" + i + " AND " + rangeCondition("bucket_start", part, i, params) +
+                        uriCondition);
+                params.addValue("granularity" + i, part.granularity().name());
+            }
+        }
+        String sql = "SELECT app, uri, SUM(hits) AS hits FROM (" + String.join(" UNION ALL ", selects) + ") p " +
+                "GROUP BY app, uri ORDER BY hits DESC" + limitClause(limit, params);
+        namedParameterJdbcTemplate.query(sql, params, (RowCallbackHandler) rs ->
+                consumer.accept(new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"))));
+    }
+
+    /**
+     * Streams the rollup sketches and raw ips of every part ordered by endpoint, so all rows of one endpoint
+     * arrive together. A row carries either a sketch or an ip.
+     */
+    public void streamIpRows(List<RollupRangePart> parts, IpRowHandler handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> selects = new ArrayList<>();
+        for (int i = 0; i < parts.size(); i++) {
+            RollupRangePart part = parts.get(i);
+            if (part.granularity() == null) {
+                selects.add("SELECT a.app, u.uri, CAST(NULL AS bytea) AS ip_sketch, host(h.ip) AS ip FROM hits h " +
+                        "JOIN hit_apps a ON a.id = h.app_id " +
+                        "JOIN hit_uris u ON u.id = h.uri_id " +
+                        "WHERE h.ip IS NOT NULL AND " + rangeCondition("h.timestamp", part, i, params));
+            } else {
+                selects.add("SELECT app, uri, ip_sketch, CAST(NULL AS text) AS ip FROM hit_rollups " +
+                        "WHERE granularity = :granularity" + i + " AND ip_sketch IS NOT NULL AND " +
+                        rangeCondition("bucket_start", part, i, params));
+                params.addValue("granularity" + i, part.granularity().name());
+            }
+        }
+        String sql = String.join(" UNION ALL ", selects) + " ORDER BY app, uri";
+        namedParameterJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+            String ip = rs.getString("ip");
+            handler.accept(rs.getString("app"), rs.getString("uri"), rs.getBytes("ip_sketch"),
+                    ip == null ? null : HitMapper.canonicalIp(ip));
+        });
+    }
+
+    public void streamExactUniqueIps(LocalDateTime start, LocalDateTime end, Integer limit, Consumer<ViewStatsDto> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = "SELECT a.app, u.uri, c.hits FROM (" +
+                "SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits FROM hits " +
+                "WHERE " + rangeCondition("timestamp", new RollupRangePart(null, start, end, true), 0, params) + " " +
+                "GROUP BY app_id, uri_id) c " +
+                "JOIN hit_apps a ON a.id = c.app_id " +
+                "JOIN hit_uris u ON u.id = c.uri_id " +
+                "ORDER BY c.hits DESC" + limitClause(limit, params);
+        namedParameterJdbcTemplate.query(sql, params, (RowCallbackHandler) rs ->
+                consumer.accept(new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"))));
+    }
+
+    private String rangeCondition(String column, RollupRangePart part, int index, MapSqlParameterSource params) {
+        params.addValue("from" + index, Timestamp.valueOf(part.from()));
+        params.addValue("to" + index, Timestamp.valueOf(part.to()));
+        return column + " >= :from" + index + " AND " + column + (part.toInclusive() ? " <= " : " < ") + ":to" + index;
+    }
+
+    private String limitClause(Integer limit, MapSqlParameterSource params) {
+        if (limit == null) {
+            return "";
+        }
+        params.addValue("limit", limit);
+        return " LIMIT :limit";
+    }
+
+    @FunctionalInterface
+    public interface IpRowHandler {
+        void accept(String app, String uri, byte[] sketch, String ip);
+    }
+}
@@ -1,48 +0,0 @@
-package ru.practicum.server.stats.repository;
-
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
-import ru.practicum.stats.dto.ViewStatsDto;
-
-import java.time.LocalDateTime;
-import java.util.List;
-
-public interface StatsRepository extends JpaRepository<ru.practicum.stats.server.model.EndpointHit, Long> {
-
-    @Query("SELECT new ru.practicum.stats.dto.ViewStatsDto(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
-            "FROM EndpointHit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<ViewStatsDto> getStatsUniqueIpAllUris(@Param("start") LocalDateTime start,
-                                               @Param("end") LocalDateTime end);
-
-    @Query("SELECT new ru.practicum.stats.dto.ViewStatsDto(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
-            "FROM EndpointHit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "AND h.uri IN :uris " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<ViewStatsDto> getStatsUniqueIp(@Param("start") LocalDateTime start,
-                                        @Param("end") LocalDateTime end,
-                                        @Param("uris") List<String> uris);
-
-    @Query("SELECT new ru.practicum.stats.dto.ViewStatsDto(h.app, h.uri, COUNT(h.ip)) " +
-            "FROM EndpointHit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h.ip) DESC ")
-    List<ViewStatsDto> getStatsAllUris(@Param("start") LocalDateTime start,
-                                       @Param("end") LocalDateTime end);
-
-    @Query("SELECT new ru.practicum.stats.dto.ViewStatsDto(h.app, h.uri, COUNT(h.ip)) " +
-            "FROM EndpointHit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "AND h.uri IN :uris " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h.ip) DESC ")
-    List<ViewStatsDto> getStats(@Param("start") LocalDateTime start,
-                                @Param("end") LocalDateTime end,
-                                @Param("uris") List<String> uris);
-}
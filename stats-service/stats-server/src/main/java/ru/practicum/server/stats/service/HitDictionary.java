@@ -0,0 +1,66 @@
+package ru.practicum.server.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.server.stats.repository.HitDictionaryRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Interns app names and uris into integer ids and caches them. Ids resolved inside a transaction are shared with
+ * other transactions only once it commits, so the cache never points at ids that were not committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class HitDictionary {
+
+    private final HitDictionaryRepository dictionaryRepository;
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+
+    public Map<String, Integer> appIds(Collection<String> apps) {
+        return resolve(apps, appIds, dictionaryRepository::findOrCreateAppIds);
+    }
+
+    public Map<String, Integer> uriIds(Collection<String> uris) {
+        return resolve(uris, uriIds, dictionaryRepository::findOrCreateUriIds);
+    }
+
+    private Map<String, Integer> resolve(Collection<String> values, Map<String, Integer> cache,
+                                         Function<List<String>, Map<String, Integer>> loader) {
+        Map<String, Integer> resolved = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        values.stream().distinct().sorted().forEach(value -> {
+            Integer id = cache.get(value);
+            if (id == null) {
+                missing.add(value);
+            } else {
+                resolved.put(value, id);
+            }
+        });
+        if (missing.isEmpty()) {
+            return resolved;
+        }
+        Map<String, Integer> loaded = loader.apply(missing);
+        resolved.putAll(loaded);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.putAll(loaded);
+                }
+            });
+        } else {
+            cache.putAll(loaded);
+        }
+        return resolved;
+    }
+}
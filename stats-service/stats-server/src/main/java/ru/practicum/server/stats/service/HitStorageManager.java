@@ -0,0 +1,156 @@
+package ru.practicum.server.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.server.stats.model.HitPartition;
+import ru.practicum.server.stats.repository.HitRollupRepository;
+import ru.practicum.server.stats.repository.HitStorageRepository;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Brings the hits table to its current layout on startup and keeps it split into monthly range partitions:
+ * creates the current and upcoming months ahead of time and detaches (and by default drops) months that fall
+ * out of the retention window. Hits outside of every monthly partition land in hits_default.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitStorageManager implements InitializingBean {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final HitStorageRepository storageRepository;
+    private final HitRollupRepository hitRollupRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stats.hits.partitions-ahead:2}")
+    private int partitionsAhead;
+
+    @Value("${stats.hits.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${stats.hits.migration-chunk:50000}")
+    private long migrationChunk;
+
+    @Value("${stats.hits.retention-drop:true}")
+    private boolean dropExpired;
+
+    @Override
+    public void afterPropertiesSet() {
+        // Runs before the web server starts, so no hit can arrive while the table is being converted.
+        if (storageRepository.hasTextColumns()) {
+            compactTextColumns();
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!storageRepository.isPartitioned()) {
+                convertLegacyTable();
+            }
+            storageRepository.createDefaultPartition();
+            storageRepository.createIndexes();
+        });
+        if (hitRollupRepository.planBackfill()) {
+            log.info("Сохранённые ранее просмотры будут учтены в агрегатах статистики в фоне");
+        }
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${stats.hits.partition-cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        YearMonth currentMonth = YearMonth.now();
+        createUpcomingPartitions(currentMonth);
+        if (retentionMonths > 0) {
+            removeExpiredPartitions(currentMonth.minusMonths(retentionMonths).atDay(1).atStartOfDay());
+        }
+    }
+
+    /**
+     * Fills the dictionary columns chunk by chunk, each chunk in its own transaction, so that an interrupted
+     * migration continues from the first hit that is not converted yet.
+     */
+    private void compactTextColumns() {
+        storageRepository.prepareTextColumnsCompaction();
+        Long next = storageRepository.findFirstUncompactedId();
+        Long last = storageRepository.findMaxId();
+        while (next != null && next <= last) {
+            long from = next;
+            long to = from + migrationChunk - 1;
+            transactionTemplate.executeWithoutResult(status -> storageRepository.compactTextColumns(from, to));
+            log.info("В таблице hits преобразованы записи до id={} из {}", Math.min(to, last), last);
+            next = to + 1;
+        }
+        transactionTemplate.executeWithoutResult(status -> storageRepository.finishTextColumnsCompaction());
+        log.info("Приложения и uri в таблице hits перенесены в справочники, ip хранится как inet");
+    }
+
+    private void convertLegacyTable() {
+        LocalDateTime upperBound = YearMonth.now().atDay(1).atStartOfDay();
+        LocalDateTime maxTimestamp = storageRepository.findMaxTimestamp();
+        if (maxTimestamp != null) {
+            LocalDateTime afterMax = YearMonth.from(maxTimestamp).plusMonths(1).atDay(1).atStartOfDay();
+            if (afterMax.isAfter(upperBound)) {
+                upperBound = afterMax;
+            }
+        }
+        storageRepository.convertToPartitioned(upperBound);
+        log.info("Таблица hits преобразована в секционированную, прежние данные до {} перенесены в hits_legacy", upperBound);
+    }
+
+    private void createUpcomingPartitions(YearMonth currentMonth) {
+        LocalDateTime coveredUntil = storageRepository.findPartitions().stream()
+                .map(HitPartition::upperBound)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(LocalDateTime.MIN);
+
+        for (int i = 0; i <= partitionsAhead; i++) {
+            YearMonth month = currentMonth.plusMonths(i);
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            if (from.isBefore(coveredUntil)) {
+                continue;
+            }
+            String name = "hits_p" + month.format(PARTITION_SUFFIX);
+            // Failures are not caught: without the partition new hits would keep piling up in hits_default.
+            if (storageRepository.defaultPartitionHasRows(from, to)) {
+                Integer moved = transactionTemplate.execute(status -> storageRepository.createPartitionFromDefault(name, from, to));
+                log.info("Секция {} создана, в неё перенесено {} записей из hits_default", name, moved);
+            } else {
+                storageRepository.createPartition(name, from, to);
+            }
+            coveredUntil = to;
+        }
+    }
+
+    private void removeExpiredPartitions(LocalDateTime cutoff) {
+        List<HitPartition> expired = storageRepository.findPartitions().stream()
+                .filter(partition -> partition.upperBound() != null && !partition.upperBound().isAfter(cutoff))
+                .collect(Collectors.toList());
+        for (HitPartition partition : expired) {
+            try {
+                storageRepository.detachPartition(partition.name());
+                if (dropExpired) {
+                    storageRepository.dropTable(partition.name());
+                }
+                log.info("Секция {} старше {} отсоединена{}", partition.name(), cutoff, dropExpired ? " и удалена" : "");
+            } catch (DataAccessException e) {
+                log.warn("Не удалось отсоединить секцию {}: {}", partition.name(), e.getMessage());
+            }
+        }
+        int deleted = storageRepository.deleteFromDefaultPartitionBefore(cutoff);
+        if (deleted > 0) {
+            log.info("Из секции hits_default удалено {} устаревших записей", deleted);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.server.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts hits stored before rollups existed and then builds IP sketches for rollup rows that have none.
+ * Runs in the background in small transactions so that a large history neither delays startup nor holds long locks;
+ * progress is stored in hit_rollup_backfill, so a restart continues where the previous run stopped.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RollupBackfillJob implements ApplicationRunner {
+
+    private static final int SKETCH_BATCH_SIZE = 500;
+
+    private final RollupService rollupService;
+
+    @Value("${stats.rollups.backfill-chunk:50000}")
+    private long chunkSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread thread = new Thread(this::backfill, "rollup-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void backfill() {
+        try {
+            int chunks = 0;
+            while (rollupService.backfillCounts(chunkSize)) {
+                chunks++;
+            }
+            if (chunks > 0) {
+                log.info("Сохранённые ранее просмотры учтены в агрегатах статистики");
+            }
+
+            int total = 0;
+            int filled;
+            do {
+                filled = rollupService.backfillSketches(SKETCH_BATCH_SIZE);
+                total += filled;
+            } while (filled > 0);
+            if (total > 0) {
+                log.info("Построены HLL-скетчи для {} агрегатов статистики", total);
+            }
+        } catch (RuntimeException e) {
+            log.error("Не удалось заполнить агрегаты статистики: {}", e.getMessage(), e);
+        }
+    }
+}
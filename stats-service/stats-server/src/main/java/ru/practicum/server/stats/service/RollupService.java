@@ -0,0 +1,26 @@
+package ru.practicum.server.stats.service;
+
+import ru.practicum.server.stats.model.HyperLogLog;
+import ru.practicum.stats.dto.HitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface RollupService {
+    void addHits(List<HitDto> hits);
+
+    Map<List<String>, Long> sumHits(LocalDateTime start, LocalDateTime end, boolean endInclusive, List<String> uris);
+
+    Map<List<String>, HyperLogLog> mergeSketches(LocalDateTime start, LocalDateTime end, boolean endInclusive, List<String> uris);
+
+    void streamHits(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit, Consumer<ViewStatsDto> consumer);
+
+    void streamUniqueIps(LocalDateTime start, LocalDateTime end, Integer limit, Consumer<ViewStatsDto> consumer);
+
+    boolean backfillCounts(long chunkSize);
+
+    int backfillSketches(int limit);
+}
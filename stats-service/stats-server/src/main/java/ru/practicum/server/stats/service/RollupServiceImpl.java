@@ -0,0 +1,276 @@
+package ru.practicum.server.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.server.stats.model.HyperLogLog;
+import ru.practicum.server.stats.model.RollupBackfill;
+import ru.practicum.server.stats.model.RollupBucket;
+import ru.practicum.server.stats.model.RollupGranularity;
+import ru.practicum.server.stats.model.RollupRangePart;
+import ru.practicum.server.stats.model.RollupSketch;
+import ru.practicum.server.stats.repository.HitJdbcRepository;
+import ru.practicum.server.stats.repository.HitRollupRepository;
+import ru.practicum.server.stats.repository.HitStreamRepository;
+import ru.practicum.stats.dto.HitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class RollupServiceImpl implements RollupService {
+
+    private final HitRollupRepository hitRollupRepository;
+    private final HitJdbcRepository hitJdbcRepository;
+    private final HitStreamRepository hitStreamRepository;
+
+    // Until hits stored before rollups are counted, every query reads the raw table.
+    private volatile boolean countsBackfilled;
+
+    @Override
+    @Transactional
+    public void addHits(List<HitDto> hits) {
+        Map<RollupBucket, Long> counts = new TreeMap<>(RollupBucket.ORDER);
+        Map<RollupBucket, HyperLogLog> sketches = new HashMap<>();
+        for (HitDto hit : hits) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                RollupBucket bucket = RollupBucket.of(granularity, hit);
+                counts.merge(bucket, 1L, Long::sum);
+                sketches.computeIfAbsent(bucket, key -> new HyperLogLog()).add(hit.getIp());
+            }
+        }
+        // The upsert keeps the touched rows locked until commit, so merging sketches below cannot lose updates.
+        hitRollupRepository.upsertCounts(counts);
+
+        Map<RollupBucket, byte[]> merged = new TreeMap<>(RollupBucket.ORDER);
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            List<RollupBucket> buckets = counts.keySet().stream()
+                    .filter(bucket -> bucket.granularity() == granularity)
+                    .collect(Collectors.toList());
+            LocalDateTime from = buckets.stream().map(RollupBucket::start).min(Comparator.naturalOrder()).orElseThrow();
+            LocalDateTime to = buckets.stream().map(RollupBucket::start).max(Comparator.naturalOrder()).orElseThrow();
+            List<String> uris = buckets.stream().map(RollupBucket::uri).distinct().collect(Collectors.toList());
+            Map<RollupBucket, RollupSketch> stored = hitRollupRepository.findSketches(granularity, from, granularity.next(to), uris).stream()
+                    .collect(Collectors.toMap(RollupSketch::bucket, Function.identity()));
+
+            for (RollupBucket bucket : buckets) {
+                HyperLogLog sketch = sketches.get(bucket);
+                RollupSketch row = stored.get(bucket);
+                if (row != null && row.sketch() != null) {
+                    sketch.merge(HyperLogLog.fromBytes(row.sketch()));
+                } else if (row != null && row.hits() > counts.get(bucket)) {
+                    // The bucket was counted before sketches existed; the raw table already holds this batch too.
+                    sketch = rebuildSketch(bucket);
+                }
+                merged.put(bucket, sketch.toBytes());
+            }
+        }
+        hitRollupRepository.updateSketches(merged);
+    }
+
+    @Override
+    public Map<List<String>, Long> sumHits(LocalDateTime start, LocalDateTime end, boolean endInclusive, List<String> uris) {
+        List<ViewStatsDto> parts = new ArrayList<>();
+        for (RollupRangePart part : planQuery(start, end, endInclusive)) {
+            if (part.granularity() == null) {
+                parts.addAll(hitJdbcRepository.countHits(part.from(), part.to(), part.toInclusive(), uris));
+            } else {
+                parts.addAll(hitRollupRepository.sumHits(part.granularity(), part.from(), part.to(), uris));
+            }
+        }
+        return parts.stream()
+                .collect(Collectors.groupingBy(
+                        stat -> List.of(stat.getApp(), stat.getUri()),
+                        Collectors.summingLong(ViewStatsDto::getHits)
+                ));
+    }
+
+    @Override
+    public Map<List<String>, HyperLogLog> mergeSketches(LocalDateTime start, LocalDateTime end, boolean endInclusive,
+                                                        List<String> uris) {
+        Map<List<String>, HyperLogLog> sketches = new HashMap<>();
+        for (RollupRangePart part : planQuery(start, end, endInclusive)) {
+            if (part.granularity() == null) {
+                hitJdbcRepository.findHits(part.from(), part.to(), part.toInclusive(), uris)
+                        .forEach(hit -> sketches.computeIfAbsent(List.of(hit.getApp(), hit.getUri()), key -> new HyperLogLog())
+                                .add(hit.getIp()));
+            } else {
+                // Rows counted before sketches existed have none yet; their ips are read from the raw hits instead.
+                hitRollupRepository.findSketches(part.granularity(), part.from(), part.to(), uris)
+                        .forEach(row -> sketches.computeIfAbsent(List.of(row.bucket().app(), row.bucket().uri()), key -> new HyperLogLog())
+                                .merge(row.sketch() == null ? rebuildSketch(row.bucket()) : HyperLogLog.fromBytes(row.sketch())));
+            }
+        }
+        return sketches;
+    }
+
+    @Override
+    public void streamHits(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit,
+                           Consumer<ViewStatsDto> consumer) {
+        hitStreamRepository.streamHits(planQuery(start, end, true), uris, limit, consumer);
+    }
+
+    /**
+     * Merges the rows of one endpoint at a time. Without a limit each endpoint is written as soon as its rows are
+     * merged, so memory stays constant and rows come in (app, uri) order. With a limit only the top endpoints are
+     * kept and written by unique ips, since estimates only exist once all rows of an endpoint are merged.
+     */
+    @Override
+    public void streamUniqueIps(LocalDateTime start, LocalDateTime end, Integer limit, Consumer<ViewStatsDto> consumer) {
+        PriorityQueue<ViewStatsDto> top = new PriorityQueue<>(Comparator.comparing(ViewStatsDto::getHits));
+        Consumer<ViewStatsDto> sink = limit == null ? consumer : stat -> {
+            top.add(stat);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        };
+        EndpointSketch current = new EndpointSketch();
+        hitStreamRepository.streamIpRows(planQuery(start, end, true), (app, uri, sketch, ip) -> {
+            if (!current.isFor(app, uri)) {
+                current.emitTo(sink);
+                current.reset(app, uri);
+            }
+            current.add(sketch, ip);
+        });
+        current.emitTo(sink);
+
+        List<ViewStatsDto> result = new ArrayList<>(top);
+        result.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        result.forEach(consumer);
+    }
+
+    /**
+     * Counts the next chunk of hits stored before rollups existed. Returns false once there is nothing left to count.
+     */
+    @Override
+    @Transactional
+    public boolean backfillCounts(long chunkSize) {
+        Optional<RollupBackfill> backfill = hitRollupRepository.findBackfill();
+        if (backfill.isEmpty()) {
+            countsBackfilled = true;
+            return false;
+        }
+        long from = backfill.get().doneToId();
+        long to = Math.min(from + chunkSize, backfill.get().upToId());
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            hitRollupRepository.backfillCounts(granularity, from, to);
+        }
+        if (to < backfill.get().upToId()) {
+            hitRollupRepository.advanceBackfill(to);
+        } else {
+            hitRollupRepository.finishBackfill();
+        }
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public int backfillSketches(int limit) {
+        List<RollupBucket> buckets = hitRollupRepository.lockBucketsWithoutSketch(limit);
+        Map<RollupBucket, byte[]> sketches = new TreeMap<>(RollupBucket.ORDER);
+        buckets.forEach(bucket -> sketches.put(bucket, rebuildSketch(bucket).toBytes()));
+        hitRollupRepository.updateSketches(sketches);
+        return buckets.size();
+    }
+
+    private HyperLogLog rebuildSketch(RollupBucket bucket) {
+        HyperLogLog sketch = new HyperLogLog();
+        hitJdbcRepository.findHits(bucket.start(), bucket.granularity().next(bucket.start()), false, List.of(bucket.uri())).stream()
+                .filter(hit -> hit.getApp().equals(bucket.app()))
+                .forEach(hit -> sketch.add(hit.getIp()));
+        return sketch;
+    }
+
+    private List<RollupRangePart> planQuery(LocalDateTime start, LocalDateTime end, boolean endInclusive) {
+        if (!countsBackfilled) {
+            return List.of(new RollupRangePart(null, start, end, endInclusive));
+        }
+        return plan(start, end, endInclusive);
+    }
+
+    /**
+     * Covers the largest aligned part of [start, end] with day buckets, widens it with hour and then minute
+     * buckets, and leaves only the sub-minute edges to the raw hits table. The end is exclusive unless endInclusive is set.
+     */
+    static List<RollupRangePart> plan(LocalDateTime start, LocalDateTime end, boolean endInclusive) {
+        List<RollupRangePart> parts = new ArrayList<>();
+        LocalDateTime coveredFrom = null;
+        LocalDateTime coveredTo = null;
+
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            LocalDateTime from = granularity.ceil(start);
+            LocalDateTime to = granularity.floor(end);
+            if (coveredFrom == null) {
+                if (from.isBefore(to)) {
+                    parts.add(new RollupRangePart(granularity, from, to, false));
+                    coveredFrom = from;
+                    coveredTo = to;
+                }
+                continue;
+            }
+            if (from.isBefore(coveredFrom)) {
+                parts.add(new RollupRangePart(granularity, from, coveredFrom, false));
+            }
+            if (coveredTo.isBefore(to)) {
+                parts.add(new RollupRangePart(granularity, coveredTo, to, false));
+            }
+            coveredFrom = from;
+            coveredTo = to;
+        }
+
+        if (coveredFrom == null) {
+            coveredFrom = start;
+            coveredTo = start;
+        }
+        if (start.isBefore(coveredFrom)) {
+            parts.add(new RollupRangePart(null, start, coveredFrom, false));
+        }
+        if (endInclusive || coveredTo.isBefore(end)) {
+            parts.add(new RollupRangePart(null, coveredTo, end, endInclusive));
+        }
+        return parts;
+    }
+
+    private static class EndpointSketch {
+        private String app;
+        private String uri;
+        private HyperLogLog sketch;
+
+        boolean isFor(String app, String uri) {
+            return sketch != null && this.app.equals(app) && this.uri.equals(uri);
+        }
+
+        void reset(String app, String uri) {
+            this.app = app;
+            this.uri = uri;
+            this.sketch = new HyperLogLog();
+        }
+
+        void add(byte[] bytes, String ip) {
+            if (bytes != null) {
+                sketch.merge(HyperLogLog.fromBytes(bytes));
+            } else {
+                sketch.add(ip);
+            }
+        }
+
+        void emitTo(Consumer<ViewStatsDto> sink) {
+            if (sketch != null) {
+                sink.accept(new ViewStatsDto(app, uri, sketch.estimate()));
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package ru.practicum.server.stats.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.server.stats.model.HyperLogLog;
+import ru.practicum.server.stats.model.RollupGranularity;
+import ru.practicum.stats.dto.HitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Caches per-uri rollup results of /stats queries.
+ * <p>
+ * A query is split at the start of the minute that lies closed-lag in the past: everything before that point is
+ * closed and cached, the rest is read again on every call. Queries ending in the open part share one entry per
+ * (start, uris, unique), which is extended minute by minute instead of being recomputed. Queries that end earlier
+ * are cached as a whole. Hits that arrive for an already cached closed range evict the entries they touch.
+ * <p>
+ * The cache is bounded by the estimated memory of its results, {@code max-size}: a unique-IP entry keeps a sketch
+ * per uri. Entries are indexed by the uris they were queried for, so a late hit only checks the entries of its uri
+ * and the entries over all uris.
+ */
+@Component
+public class StatsQueryCache {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    private static final int VALUE_OVERHEAD_BYTES = 200;
+
+    private final RollupService rollupService;
+    private final Cache<Key, Entry<?>> cache;
+    private final Duration closedLag;
+    private final AtomicLong generation = new AtomicLong();
+    private final Object indexLock = new Object();
+    private final Map<String, Set<Key>> keysByUri = new HashMap<>();
+    private final Set<Key> allUriKeys = new HashSet<>();
+
+    public StatsQueryCache(RollupService rollupService,
+                           MeterRegistry meterRegistry,
+                           @Value("${stats.cache.max-size:64MB}") DataSize maxSize,
+                           @Value("${stats.cache.closed-lag:PT1M}") Duration closedLag) {
+        this.rollupService = rollupService;
+        this.closedLag = closedLag;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, Entry<?> entry) -> entry.weight(key.unique()))
+                .executor(Runnable::run)
+                .removalListener((Key key, Entry<?> entry, RemovalCause cause) -> unindex(key))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "stats-query");
+    }
+
+    public List<ViewStatsDto> countHits(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return toViewStats(query(start, end, uris, false, rollupService::sumHits, Long::sum));
+    }
+
+    public List<ViewStatsDto> countUniqueIps(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<List<String>, HyperLogLog> sketches = query(start, end, uris, true, rollupService::mergeSketches,
+                (cached, fresh) -> HyperLogLog.fromBytes(cached.toBytes()).merge(fresh));
+        Map<List<String>, Long> uniqueIps = new HashMap<>();
+        sketches.forEach((key, sketch) -> uniqueIps.put(key, sketch.estimate()));
+        return toViewStats(uniqueIps);
+    }
+
+    /**
+     * Evicts the entries whose closed range contains one of the hits once the transaction that stored them commits.
+     */
+    public void evict(List<HitDto> hits) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(hits);
+                }
+            });
+        } else {
+            evictNow(hits);
+        }
+    }
+
+    private void evictNow(List<HitDto> hits) {
+        LocalDateTime boundary = closedBoundary();
+        List<HitDto> late = hits.stream()
+                .filter(hit -> hit.getTimestamp().isBefore(boundary))
+                .collect(Collectors.toList());
+        if (late.isEmpty()) {
+            return;
+        }
+        generation.incrementAndGet();
+        synchronized (indexLock) {
+            Set<Key> candidates = new HashSet<>(allUriKeys);
+            late.stream()
+                    .map(HitDto::getUri)
+                    .distinct()
+                    .forEach(uri -> candidates.addAll(keysByUri.getOrDefault(uri, Set.of())));
+            for (Key key : candidates) {
+                Entry<?> entry = cache.getIfPresent(key);
+                if (entry != null && late.stream().anyMatch(hit -> entry.covers(key, hit))) {
+                    cache.invalidate(key);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Map<List<String>, T> query(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                           RangeLoader<T> loader, BinaryOperator<T> combiner) {
+        LocalDateTime boundary = closedBoundary();
+        if (!start.isBefore(boundary)) {
+            return loader.load(start, end, true, uris);
+        }
+        boolean open = !end.isBefore(boundary);
+        Key key = new Key(start, open ? null : end, uris == null ? null : Set.copyOf(uris), unique);
+        long observed = generation.get();
+        Entry<T> cached = (Entry<T>) cache.getIfPresent(key);
+
+        if (!open) {
+            if (cached != null) {
+                return cached.values();
+            }
+            Entry<T> entry = new Entry<>(end, true, loader.load(start, end, true, uris));
+            store(key, entry, observed);
+            return entry.values();
+        }
+
+        Entry<T> entry;
+        if (cached == null || cached.closedTo().isAfter(boundary)) {
+            entry = new Entry<>(boundary, false, loader.load(start, boundary, false, uris));
+            store(key, entry, observed);
+        } else if (cached.closedTo().isBefore(boundary)) {
+            Map<List<String>, T> delta = loader.load(cached.closedTo(), boundary, false, uris);
+            entry = new Entry<>(boundary, false, combine(cached.values(), delta, combiner));
+            store(key, entry, observed);
+        } else {
+            entry = cached;
+        }
+        return combine(entry.values(), loader.load(entry.closedTo(), end, true, uris), combiner);
+    }
+
+    /**
+     * Drops the entry again if hits were evicted while it was being computed, since it may predate them.
+     */
+    private void store(Key key, Entry<?> entry, long observed) {
+        if (generation.get() != observed) {
+            return;
+        }
+        synchronized (indexLock) {
+            cache.put(key, entry);
+            if (key.uris() == null) {
+                allUriKeys.add(key);
+            } else {
+                key.uris().forEach(uri -> keysByUri.computeIfAbsent(uri, k -> new HashSet<>()).add(key));
+            }
+        }
+        if (generation.get() != observed) {
+            synchronized (indexLock) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Runs for every removal, including size evictions on a reader's thread; a key stored again meanwhile stays.
+     */
+    private void unindex(Key key) {
+        synchronized (indexLock) {
+            if (cache.asMap().containsKey(key)) {
+                return;
+            }
+            if (key.uris() == null) {
+                allUriKeys.remove(key);
+                return;
+            }
+            for (String uri : key.uris()) {
+                Set<Key> keys = keysByUri.get(uri);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        keysByUri.remove(uri);
+                    }
+                }
+            }
+        }
+    }
+
+    private LocalDateTime closedBoundary() {
+        return RollupGranularity.MINUTE.floor(LocalDateTime.now().minus(closedLag));
+    }
+
+    private <T> Map<List<String>, T> combine(Map<List<String>, T> cached, Map<List<String>, T> fresh,
+                                             BinaryOperator<T> combiner) {
+        Map<List<String>, T> result = new HashMap<>(cached);
+        fresh.forEach((key, value) -> result.merge(key, value, combiner));
+        return result;
+    }
+
+    private List<ViewStatsDto> toViewStats(Map<List<String>, Long> hits) {
+        return hits.entrySet().stream()
+                .map(entry -> new ViewStatsDto(entry.getKey().get(0), entry.getKey().get(1), entry.getValue()))
+                .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    @FunctionalInterface
+    private interface RangeLoader<T> {
+        Map<List<String>, T> load(LocalDateTime from, LocalDateTime to, boolean toInclusive, List<String> uris);
+    }
+
+    /**
+     * End is null for queries that reach into the open part of the timeline.
+     */
+    private record Key(LocalDateTime start, LocalDateTime end, Set<String> uris, boolean unique) {
+    }
+
+    /**
+     * Per (app, uri) results for [key.start, closedTo), or up to closedTo inclusive for a finished query.
+     */
+    private record Entry<T>(LocalDateTime closedTo, boolean closedToInclusive, Map<List<String>, T> values) {
+
+        /**
+         * Rough footprint in bytes: the (app, uri) key and map node of every value plus a count or a sketch.
+         */
+        int weight(boolean unique) {
+            long perValue = VALUE_OVERHEAD_BYTES + (unique ? HyperLogLog.REGISTERS : Long.BYTES);
+            return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD_BYTES + values.size() * perValue);
+        }
+
+        boolean covers(Key key, HitDto hit) {
+            LocalDateTime timestamp = hit.getTimestamp();
+            boolean inRange = !timestamp.isBefore(key.start())
+                    && (closedToInclusive ? !timestamp.isAfter(closedTo) : timestamp.isBefore(closedTo));
+            return inRange && (key.uris() == null || key.uris().contains(hit.getUri()));
+        }
+    }
+}
@@ -1,13 +1,23 @@
 package ru.practicum.server.stats.service;
 
 import ru.practicum.stats.dto.HitDto;
+import ru.practicum.stats.dto.StatsQueryDto;
 import ru.practicum.stats.dto.ViewStatsDto;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
     void createHit(HitDto body);
 
-    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+    void createHits(List<HitDto> hits);
+
+    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean exact,
+                                Integer limit);
+
+    List<ViewStatsDto> queryStats(StatsQueryDto query);
+
+    void streamStats(LocalDateTime start, LocalDateTime end, boolean unique, boolean exact, Integer limit,
+                     Consumer<ViewStatsDto> consumer);
 }
@@ -5,12 +5,18 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.server.stats.model.mapper.HitMapper;
-import ru.practicum.server.stats.repository.StatsRepository;
+import ru.practicum.server.stats.repository.HitJdbcRepository;
+import ru.practicum.server.stats.repository.HitStreamRepository;
 import ru.practicum.stats.dto.HitDto;
+import ru.practicum.stats.dto.StatsQueryDto;
 import ru.practicum.stats.dto.ViewStatsDto;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -18,30 +24,102 @@ import java.util.List;
 @Transactional(readOnly = true)
 public class StatsServiceImpl implements StatsService {
 
-    private final StatsRepository repository;
+    private final HitJdbcRepository hitJdbcRepository;
+    private final HitStreamRepository hitStreamRepository;
+    private final HitDictionary hitDictionary;
+    private final RollupService rollupService;
+    private final StatsQueryCache statsQueryCache;
 
     @Override
     @Transactional
     public void createHit(HitDto body) {
-        repository.save(HitMapper.toHit(body));
+        createHits(List.of(body));
     }
 
     @Override
-    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
-        if (start.isAfter(end)) {
-            throw new IllegalArgumentException("Start date cannot be after end date.");
+    @Transactional
+    public void createHits(List<HitDto> hits) {
+        if (hits.isEmpty()) {
+            return;
         }
+        List<HitDto> canonicalHits = hits.stream()
+                .map(HitMapper::withCanonicalIp)
+                .collect(Collectors.toList());
+        Map<String, Integer> appIds = hitDictionary.appIds(canonicalHits.stream().map(HitDto::getApp).collect(Collectors.toSet()));
+        Map<String, Integer> uriIds = hitDictionary.uriIds(canonicalHits.stream().map(HitDto::getUri).collect(Collectors.toSet()));
+        hitJdbcRepository.saveAll(canonicalHits, appIds, uriIds);
+        rollupService.addHits(canonicalHits);
+        statsQueryCache.evict(canonicalHits);
+    }
+
+    @Override
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean exact,
+                                       Integer limit) {
+        validateQuery(start, end, limit);
+        List<String> uriFilter = uris == null || uris.isEmpty() ? null : uris;
 
-        if (unique) {
-            if (uris == null || uris.isEmpty()) {
-                return repository.getStatsUniqueIpAllUris(start, end);
+        List<ViewStatsDto> stats;
+        if (!unique && limit != null) {
+            // Only the top rows are read, the cache keeps whole results
+            stats = new ArrayList<>();
+            rollupService.streamHits(start, end, uriFilter, limit, stats::add);
+        } else if (!unique) {
+            stats = statsQueryCache.countHits(start, end, uriFilter);
+        } else if (!exact) {
+            // Unique ips are estimated from sketches merged in memory, so they can only be limited afterwards
+            stats = statsQueryCache.countUniqueIps(start, end, uriFilter);
+            if (limit != null && stats.size() > limit) {
+                stats = stats.subList(0, limit);
             }
-            return repository.getStatsUniqueIp(start, end, uris);
         } else {
-            if (uris == null || uris.isEmpty()) {
-                return repository.getStatsAllUris(start, end);
+            stats = hitJdbcRepository.countUniqueIps(start, end, uriFilter, limit);
+        }
+        return stats;
+    }
+
+    @Override
+    public List<ViewStatsDto> queryStats(StatsQueryDto query) {
+        if (query.getStart() == null || query.getEnd() == null) {
+            throw new IllegalArgumentException("Start and end dates are required.");
+        }
+        List<String> uris = null;
+        if (query.getUris() != null || query.getIds() != null) {
+            uris = new ArrayList<>();
+            if (query.getUris() != null) {
+                uris.addAll(query.getUris());
+            }
+            if (query.getIds() != null) {
+                if (query.getUriPrefix() == null) {
+                    throw new IllegalArgumentException("Uri prefix is required for ids.");
+                }
+                query.getIds().forEach(id -> uris.add(query.getUriPrefix() + id));
             }
-            return repository.getStats(start, end, uris);
+            if (uris.isEmpty()) {
+                return List.of();
+            }
+        }
+        return getStats(query.getStart(), query.getEnd(), uris, query.isUnique(), query.isExact(), query.getLimit());
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, boolean unique, boolean exact, Integer limit,
+                            Consumer<ViewStatsDto> consumer) {
+        validateQuery(start, end, limit);
+        if (!unique) {
+            rollupService.streamHits(start, end, null, limit, consumer);
+        } else if (!exact) {
+            rollupService.streamUniqueIps(start, end, limit, consumer);
+        } else {
+            hitStreamRepository.streamExactUniqueIps(start, end, limit, consumer);
+        }
+    }
+
+    private void validateQuery(LocalDateTime start, LocalDateTime end, Integer limit) {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Start date cannot be after end date.");
+        }
+        if (limit != null && limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive.");
         }
     }
 }
@@ -1,8 +1,43 @@
-create TABLE IF NOT EXISTS hits (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+CREATE TABLE IF NOT EXISTS hit_apps (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     app VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_hit_apps PRIMARY KEY (id),
+    CONSTRAINT uq_hit_apps_app UNIQUE (app)
+);
+
+CREATE TABLE IF NOT EXISTS hit_uris (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
     uri VARCHAR(255) NOT NULL,
-    ip VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_hit_uris PRIMARY KEY (id),
+    CONSTRAINT uq_hit_uris_uri UNIQUE (uri)
+);
+
+CREATE SEQUENCE IF NOT EXISTS hits_id_seq;
+
+create TABLE IF NOT EXISTS hits (
+    id BIGINT NOT NULL DEFAULT nextval('hits_id_seq'),
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip INET,
     timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
-    CONSTRAINT pk_hits PRIMARY KEY (id)
-);
\ No newline at end of file
+    CONSTRAINT pk_hits PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE IF NOT EXISTS hit_rollups (
+    granularity VARCHAR(10) NOT NULL,
+    app VARCHAR(255) NOT NULL,
+    uri VARCHAR(255) NOT NULL,
+    bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    ip_sketch BYTEA,
+    CONSTRAINT pk_hit_rollups PRIMARY KEY (granularity, app, uri, bucket_start)
+);
+
+ALTER TABLE hit_rollups ADD COLUMN IF NOT EXISTS ip_sketch BYTEA;
+
+CREATE INDEX IF NOT EXISTS idx_hit_rollups_bucket ON hit_rollups (granularity, bucket_start);
+
+CREATE TABLE IF NOT EXISTS hit_rollup_backfill (
+    done_to_id BIGINT NOT NULL,
+    up_to_id BIGINT NOT NULL
+);
@@ -0,0 +1,99 @@
+package ru.practicum.server.stats.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    private static final double STANDARD_ERROR = 1.04 / Math.sqrt(HyperLogLog.REGISTERS);
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 1_000, 10_000, 100_000, 1_000_000})
+    void estimatesWithinTwoStandardErrors(int distinct) {
+        HyperLogLog sketch = sketchOf(0, distinct);
+        // Every address twice: repeats must not change the estimate
+        for (int i = 0; i < distinct; i++) {
+            sketch.add(ip(i));
+        }
+
+        assertThat(relativeError(sketch.estimate(), distinct)).isLessThanOrEqualTo(2 * STANDARD_ERROR);
+    }
+
+    @Test
+    void errorOverManySketchesMatchesStandardError() {
+        int sketches = 200;
+        int distinct = 10_000;
+        double squares = 0;
+        int withinTwoErrors = 0;
+        for (int s = 0; s < sketches; s++) {
+            double error = relativeError(sketchOf(s * distinct, distinct).estimate(), distinct);
+            squares += error * error;
+            if (Math.abs(error) <= 2 * STANDARD_ERROR) {
+                withinTwoErrors++;
+            }
+        }
+
+        assertThat(Math.sqrt(squares / sketches)).isCloseTo(STANDARD_ERROR, within(STANDARD_ERROR * 0.25));
+        assertThat(withinTwoErrors).isGreaterThanOrEqualTo(sketches * 95 / 100);
+    }
+
+    @Test
+    void mergeEqualsSketchOfUnion() {
+        HyperLogLog union = sketchOf(0, 100_000);
+        HyperLogLog merged = sketchOf(0, 60_000).merge(sketchOf(40_000, 60_000));
+
+        assertThat(merged.toBytes()).isEqualTo(union.toBytes());
+        assertThat(relativeError(merged.estimate(), 100_000)).isLessThanOrEqualTo(2 * STANDARD_ERROR);
+    }
+
+    @Test
+    void sparseSketchSurvivesSerialization() {
+        HyperLogLog sketch = sketchOf(0, 50);
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(bytes.length).isLessThan(HyperLogLog.REGISTERS);
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void denseSketchSurvivesSerialization() {
+        HyperLogLog sketch = sketchOf(0, 100_000);
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(bytes.length).isEqualTo(HyperLogLog.REGISTERS + 1);
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void missingSketchIsEmpty() {
+        assertThat(HyperLogLog.fromBytes(null).estimate()).isZero();
+        assertThat(HyperLogLog.fromBytes(new byte[0]).estimate()).isZero();
+        assertThat(HyperLogLog.fromBytes(new HyperLogLog().toBytes()).estimate()).isZero();
+    }
+
+    private static HyperLogLog sketchOf(int from, int count) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = from; i < from + count; i++) {
+            sketch.add(ip(i));
+        }
+        return sketch;
+    }
+
+    private static String ip(int i) {
+        return (10 + (i >>> 24)) + "." + ((i >>> 16) & 255) + "." + ((i >>> 8) & 255) + "." + (i & 255);
+    }
+
+    private static double relativeError(long estimate, long exact) {
+        return Math.abs(estimate - exact) / (double) exact;
+    }
+}
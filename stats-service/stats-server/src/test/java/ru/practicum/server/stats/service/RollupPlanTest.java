@@ -0,0 +1,109 @@
+package ru.practicum.server.stats.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.server.stats.model.RollupGranularity;
+import ru.practicum.server.stats.model.RollupRangePart;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ru.practicum.server.stats.model.RollupGranularity.DAY;
+import static ru.practicum.server.stats.model.RollupGranularity.HOUR;
+import static ru.practicum.server.stats.model.RollupGranularity.MINUTE;
+
+class RollupPlanTest {
+
+    @Test
+    void splitsEdgesAcrossDayHourAndMinuteBoundaries() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 15, 30);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 3, 8, 45, 20);
+
+        assertThat(RollupServiceImpl.plan(start, end, false)).containsExactly(
+                part(DAY, "2024-01-02T00:00", "2024-01-03T00:00"),
+                part(HOUR, "2024-01-01T11:00", "2024-01-02T00:00"),
+                part(HOUR, "2024-01-03T00:00", "2024-01-03T08:00"),
+                part(MINUTE, "2024-01-01T10:16", "2024-01-01T11:00"),
+                part(MINUTE, "2024-01-03T08:00", "2024-01-03T08:45"),
+                raw("2024-01-01T10:15:30", "2024-01-01T10:16", false),
+                raw("2024-01-03T08:45", "2024-01-03T08:45:20", false));
+    }
+
+    @Test
+    void crossesMidnightWithHoursAndMinutesOnly() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 23, 30);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 2, 1, 10);
+
+        assertThat(RollupServiceImpl.plan(start, end, false)).containsExactly(
+                part(HOUR, "2024-01-02T00:00", "2024-01-02T01:00"),
+                part(MINUTE, "2024-01-01T23:30", "2024-01-02T00:00"),
+                part(MINUTE, "2024-01-02T01:00", "2024-01-02T01:10"));
+    }
+
+    @Test
+    void readsInclusiveEndFromRawHits() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 15, 30);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 1, 10, 40);
+
+        assertThat(RollupServiceImpl.plan(start, end, true)).containsExactly(
+                part(MINUTE, "2024-01-01T10:16", "2024-01-01T10:40"),
+                raw("2024-01-01T10:15:30", "2024-01-01T10:16", false),
+                raw("2024-01-01T10:40", "2024-01-01T10:40", true));
+    }
+
+    @Test
+    void coversAlignedDaysWithDayBucketsOnly() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 3, 0, 0);
+
+        assertThat(RollupServiceImpl.plan(start, end, false)).containsExactly(
+                part(DAY, "2024-01-01T00:00", "2024-01-03T00:00"));
+        assertThat(RollupServiceImpl.plan(start, end, true)).containsExactly(
+                part(DAY, "2024-01-01T00:00", "2024-01-03T00:00"),
+                raw("2024-01-03T00:00", "2024-01-03T00:00", true));
+    }
+
+    @Test
+    void readsRangeWithinOneMinuteFromRawHits() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 10, 15, 10);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 1, 10, 15, 50);
+
+        assertThat(RollupServiceImpl.plan(start, end, false)).containsExactly(
+                raw("2024-01-01T10:15:10", "2024-01-01T10:15:50", false));
+    }
+
+    @Test
+    void partsCoverRandomRangesExactlyOnce() {
+        Random random = new Random(42);
+        LocalDateTime origin = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime start = origin.plusSeconds(random.nextInt(10 * 24 * 3600));
+            LocalDateTime end = start.plusSeconds(random.nextInt(5 * 24 * 3600));
+
+            List<RollupRangePart> parts = new ArrayList<>(RollupServiceImpl.plan(start, end, false));
+            parts.sort(Comparator.comparing(RollupRangePart::from));
+            LocalDateTime coveredTo = start;
+            for (RollupRangePart part : parts) {
+                assertThat(part.from()).as("%s..%s", start, end).isEqualTo(coveredTo);
+                assertThat(part.from()).isBefore(part.to());
+                if (part.granularity() != null) {
+                    assertThat(part.granularity().floor(part.from())).isEqualTo(part.from());
+                    assertThat(part.granularity().floor(part.to())).isEqualTo(part.to());
+                }
+                coveredTo = part.to();
+            }
+            assertThat(coveredTo).as("%s..%s", start, end).isEqualTo(end);
+        }
+    }
+
+    private static RollupRangePart part(RollupGranularity granularity, String from, String to) {
+        return new RollupRangePart(granularity, LocalDateTime.parse(from), LocalDateTime.parse(to), false);
+    }
+
+    private static RollupRangePart raw(String from, String to, boolean toInclusive) {
+        return new RollupRangePart(null, LocalDateTime.parse(from), LocalDateTime.parse(to), toInclusive);
+    }
+}